@@ -53,6 +53,10 @@ android {
     ndkVersion = "28.0.12674087"
     buildFeatures { compose = true }
     composeOptions { kotlinCompilerExtensionVersion = "1.5.14" }
+    androidResources {
+        // Simpan model tanpa kompresi agar bisa di-mmap langsung dari APK
+        noCompress += listOf("tflite")
+    }
     packaging {
         resources {
             excludes += "/META-INF/{AL2.0,LGPL2.1}"
@@ -66,6 +70,7 @@ android {
 
     buildFeatures {
         viewBinding = true
+        buildConfig = true
     }
 }
 
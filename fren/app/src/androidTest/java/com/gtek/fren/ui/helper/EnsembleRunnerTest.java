@@ -0,0 +1,185 @@
+package com.gtek.fren.ui.helper;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencv.android.OpenCVLoader;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Scratch ensemble tidak boleh kembali ke pool selama tugas model sekunder masih berjalan,
+ * termasuk saat model primer gagal.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EnsembleRunnerTest {
+
+    private static final int PARALLELISM = 1;
+
+    private final CountDownLatch secondaryStarted = new CountDownLatch(1);
+    private final CountDownLatch secondaryGate = new CountDownLatch(1);
+    private final AtomicBoolean secondaryFinished = new AtomicBoolean(false);
+
+    private EnsembleRunner runner;
+    private InterpreterPool primaryPool;
+    private InterpreterPool secondaryPool;
+    private FakeSession primarySession;
+    private FakeSession secondarySession;
+    private Mat face;
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        assertTrue(OpenCVLoader.initLocal());
+    }
+
+    @Before
+    public void setUp() {
+        primarySession = new FakeSession();
+        secondarySession = new FakeSession();
+        primaryPool = new InterpreterPool(new FakeBackend(primarySession), fakeModel(), 1);
+        secondaryPool = new InterpreterPool(new FakeBackend(secondarySession), fakeModel(), 1);
+        runner = new EnsembleRunner(PARALLELISM);
+        face = new Mat(InferenceSession.INPUT_SIZE, InferenceSession.INPUT_SIZE, CvType.CV_8UC1);
+    }
+
+    @After
+    public void tearDown() {
+        secondaryGate.countDown();
+        runner.close();
+        primaryPool.close();
+        secondaryPool.close();
+        face.release();
+    }
+
+    @Test
+    public void primaryFailureWaitsForRunningSecondary() throws Exception {
+        int idleBefore = runner.getIdleScratchCount();
+        // Model primer gagal begitu model sekunder mulai; gerbang sekunder dibuka sebentar kemudian
+        primarySession.failAfter = secondaryStarted;
+        secondarySession.gate = secondaryGate;
+        new Thread(() -> {
+            try {
+                secondaryStarted.await(5, TimeUnit.SECONDS);
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            secondaryGate.countDown();
+        }).start();
+
+        try {
+            runner.run(primaryPool, secondaryPool, face, new EmotionScores());
+            fail("Primary failure should propagate");
+        } catch (IllegalStateException expected) {
+            // Diharapkan
+        }
+
+        assertTrue("Secondary still running after run() returned", secondaryFinished.get());
+        assertEquals(idleBefore, runner.getIdleScratchCount());
+    }
+
+    @Test
+    public void scratchReturnsOnlyAfterSecondaryFinishes() throws Exception {
+        int idleBefore = runner.getIdleScratchCount();
+        // Gerbang sekunder baru dibuka setelah run() menyerah menunggu
+        primarySession.failAfter = secondaryStarted;
+        secondarySession.gate = secondaryGate;
+
+        try {
+            runner.run(primaryPool, secondaryPool, face, new EmotionScores());
+            fail("Primary failure should propagate");
+        } catch (IllegalStateException expected) {
+            // Diharapkan
+        }
+
+        assertTrue(secondaryStarted.await(0, TimeUnit.SECONDS));
+        assertEquals("Scratch recycled while secondary still running",
+                idleBefore - 1, runner.getIdleScratchCount());
+
+        secondaryGate.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (runner.getIdleScratchCount() != idleBefore && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(idleBefore, runner.getIdleScratchCount());
+    }
+
+    private static ModelLoader.MappedModel fakeModel() {
+        return new ModelLoader.MappedModel("fake.tflite", null, "test", null);
+    }
+
+    // Sesi palsu: aktif setelah verify() pool; primer bisa dibuat gagal, sekunder bisa ditahan
+    private final class FakeSession extends InferenceSession {
+        volatile CountDownLatch failAfter;
+        volatile CountDownLatch gate;
+        private boolean verified = false;
+
+        FakeSession() {
+            super(TensorSpec.FLOAT32, TensorSpec.FLOAT32);
+        }
+
+        @Override
+        void invoke(TensorBuffers buffers) {
+            if (!verified) {
+                verified = true;
+                return;
+            }
+            try {
+                if (gate != null) {
+                    secondaryStarted.countDown();
+                    gate.await(10, TimeUnit.SECONDS);
+                    secondaryFinished.set(true);
+                }
+                if (failAfter != null) {
+                    failAfter.await(5, TimeUnit.SECONDS);
+                    throw new IllegalStateException("Primary model failed");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        void closeEngine() {
+        }
+    }
+
+    private static final class FakeBackend implements InferenceBackend {
+        private final InferenceSession session;
+
+        FakeBackend(InferenceSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public String resolveAssetName(String modelName) {
+            return modelName;
+        }
+
+        @Override
+        public boolean requiresModelFile() {
+            return false;
+        }
+
+        @Override
+        public InferenceSession createSession(ModelLoader.MappedModel model) {
+            return session;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.gtek.fren.ui.helper;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencv.android.OpenCVLoader;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Golden test: FaceTensorKernel harus sama dengan jalur OpenCV (submat + INTER_AREA)
+ * dalam batas pembulatan 8-bit.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FaceTensorKernelTest {
+
+    private static final int SIZE = InferenceSession.INPUT_SIZE;
+    private static final int FRAME_WIDTH = 320;
+    private static final int FRAME_HEIGHT = 240;
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        assertTrue(OpenCVLoader.initLocal());
+    }
+
+    @Test
+    public void matchesOpenCvWhenDownscaling() {
+        assertMatchesOpenCv(1, FRAME_WIDTH, 40, 30, 200, 180);
+    }
+
+    @Test
+    public void matchesOpenCvForIntegerScale() {
+        assertMatchesOpenCv(1, FRAME_WIDTH, 10, 10, 96, 96);
+    }
+
+    @Test
+    public void matchesOpenCvWhenUpscaling() {
+        assertMatchesOpenCv(1, FRAME_WIDTH, 100, 100, 37, 41);
+    }
+
+    @Test
+    public void matchesOpenCvForMixedScale() {
+        assertMatchesOpenCv(1, FRAME_WIDTH, 5, 5, 120, 30);
+    }
+
+    @Test
+    public void honoursRowAndPixelStride() {
+        assertMatchesOpenCv(2, FRAME_WIDTH * 2 + 64, 17, 23, 150, 133);
+    }
+
+    @Test
+    public void writesNormalizedFloats() {
+        Random random = new Random(7);
+        byte[] pixels = randomFrame(random);
+        ByteBuffer plane = toPlane(pixels, 1, FRAME_WIDTH);
+        ByteBuffer target = ByteBuffer.allocateDirect(SIZE * SIZE * 4).order(ByteOrder.nativeOrder());
+
+        FaceTensorKernel kernel = new FaceTensorKernel(SIZE, SIZE);
+        kernel.resizeInto(plane, FRAME_WIDTH, 1, 0, 0, 192, 192, 0, target, 0,
+                FaceTensorKernel.OUTPUT_FLOAT32, 1f / 255f, 0f);
+
+        Mat expected = openCvResize(pixels, 0, 0, 192, 192, -1);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                float value = target.getFloat((y * SIZE + x) * 4);
+                assertEquals(expected.get(y, x)[0] / 255.0, value, 1.0 / 255.0);
+            }
+        }
+        expected.release();
+    }
+
+    @Test
+    public void rotatesOnlyTheCrop() {
+        assertMatchesOpenCv(1, FRAME_WIDTH, 30, 20, 160, 120, 90, Core.ROTATE_90_CLOCKWISE);
+        assertMatchesOpenCv(1, FRAME_WIDTH, 30, 20, 160, 120, 180, Core.ROTATE_180);
+        assertMatchesOpenCv(1, FRAME_WIDTH, 30, 20, 160, 120, 270, Core.ROTATE_90_COUNTERCLOCKWISE);
+    }
+
+    private void assertMatchesOpenCv(int pixelStride, int rowStride, int left, int top, int width, int height) {
+        assertMatchesOpenCv(pixelStride, rowStride, left, top, width, height, 0, -1);
+    }
+
+    private void assertMatchesOpenCv(int pixelStride, int rowStride, int left, int top, int width, int height,
+                                     int rotationDegrees, int openCvRotation) {
+        Random random = new Random(42);
+        byte[] pixels = randomFrame(random);
+        ByteBuffer plane = toPlane(pixels, pixelStride, rowStride);
+
+        byte[] actual = new byte[SIZE * SIZE];
+        new FaceTensorKernel(SIZE, SIZE).resizeToBytes(plane, rowStride, pixelStride,
+                left, top, width, height, rotationDegrees, actual);
+
+        Mat expected = openCvResize(pixels, left, top, width, height, openCvRotation);
+        int maxDiff = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int diff = Math.abs((int) expected.get(y, x)[0] - (actual[y * SIZE + x] & 0xFF));
+                maxDiff = Math.max(maxDiff, diff);
+            }
+        }
+        expected.release();
+        assertTrue("Max difference " + maxDiff, maxDiff <= 1);
+    }
+
+    // Jalur referensi: frame rapat -> submat -> (Core.rotate) -> Imgproc.resize INTER_AREA
+    private static Mat openCvResize(byte[] pixels, int left, int top, int width, int height, int rotation) {
+        Mat frame = new Mat(FRAME_HEIGHT, FRAME_WIDTH, CvType.CV_8UC1);
+        frame.put(0, 0, pixels);
+        Mat roi = frame.submat(new Rect(left, top, width, height));
+        if (rotation >= 0) {
+            Mat rotated = new Mat();
+            Core.rotate(roi, rotated, rotation);
+            roi.release();
+            roi = rotated;
+        }
+        Mat resized = new Mat();
+        Imgproc.resize(roi, resized, new Size(SIZE, SIZE), 0, 0, Imgproc.INTER_AREA);
+        roi.release();
+        frame.release();
+        return resized;
+    }
+
+    private static byte[] randomFrame(Random random) {
+        byte[] pixels = new byte[FRAME_WIDTH * FRAME_HEIGHT];
+        random.nextBytes(pixels);
+        return pixels;
+    }
+
+    // Tata letak plane kamera: padding per baris dan piksel berselang
+    private static ByteBuffer toPlane(byte[] pixels, int pixelStride, int rowStride) {
+        ByteBuffer plane = ByteBuffer.allocateDirect(rowStride * FRAME_HEIGHT);
+        for (int y = 0; y < FRAME_HEIGHT; y++) {
+            for (int x = 0; x < FRAME_WIDTH; x++) {
+                plane.put(y * rowStride + x * pixelStride, pixels[y * FRAME_WIDTH + x]);
+            }
+        }
+        return plane;
+    }
+}
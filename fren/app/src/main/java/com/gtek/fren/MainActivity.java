@@ -14,17 +14,15 @@ import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 import androidx.drawerlayout.widget.DrawerLayout;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.gtek.fren.databinding.ActivityMainBinding;
-import com.gtek.fren.ui.helper.EmotionBenchmark;
+import com.gtek.fren.ui.emotionanalysis.EmotionAnalysisViewModel;
 import com.gtek.fren.ui.helper.EmotionClassifier;
 
-import java.io.IOException;
-
 public class MainActivity extends AppCompatActivity {
     private AppBarConfiguration mAppBarConfiguration;
-    private EmotionClassifier emotionClassifier;
-    private EmotionBenchmark emotionBenchmark;
+    private EmotionAnalysisViewModel viewModel;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -38,9 +36,10 @@ public class MainActivity extends AppCompatActivity {
         DrawerLayout drawer = binding.drawerLayout;
         NavigationView navigationView = binding.navView;
 
-        // Inisialisasi EmotionClassifier
-        emotionClassifier = new EmotionClassifier(this);
-        emotionBenchmark = new EmotionBenchmark();
+        // Classifier dimiliki ViewModel (scope activity) yang juga dipakai EmotionAnalysisFragment
+        viewModel = new ViewModelProvider(this,
+                new EmotionAnalysisViewModel.EmotionAnalysisViewModelFactory(getApplication()))
+                .get(EmotionAnalysisViewModel.class);
 
         mAppBarConfiguration = new AppBarConfiguration.Builder(
                 R.id.nav_emotion_analysis, R.id.nav_about, R.id.nav_about_emotion, R.id.nav_privacy_policy)
@@ -62,37 +61,90 @@ public class MainActivity extends AppCompatActivity {
         int id = item.getItemId();
 
         if (id == R.id.model_cnnresnet || id == R.id.model_kanresnet) {
-            try {
-                if (id == R.id.model_cnnresnet) {
-                    emotionClassifier.switchModel(EmotionClassifier.MODEL_CNN_RESNET);
-                } else {
-                    emotionClassifier.switchModel(EmotionClassifier.MODEL_KAN_RESNET);
-                }
+            String model = (id == R.id.model_cnnresnet)
+                    ? EmotionClassifier.MODEL_CNN_RESNET
+                    : EmotionClassifier.MODEL_KAN_RESNET;
+            String modelName = (id == R.id.model_cnnresnet) ? "CNN ResEmoteNet" : "KAN ResEmoteNet";
+
+            // Model baru dimuat di background; klasifikasi tetap memakai model lama sampai siap
+            viewModel.switchModel(model, new EmotionClassifier.ModelSwitchCallback() {
+                @Override
+                public void onModelSwitched(String switchedModel) {
+                    runOnUiThread(() -> {
+                        Toast.makeText(MainActivity.this, "Switched to " + modelName, Toast.LENGTH_SHORT).show();
 
-                item.setChecked(true);
+                        invalidateOptionsMenu();
 
-                String modelName = (id == R.id.model_cnnresnet) ? "CNN ResEmoteNet" : "KAN ResEmoteNet";
-                Toast.makeText(this, "Switched to " + modelName, Toast.LENGTH_SHORT).show();
+                        viewModel.getBenchmark().reset();
 
-                invalidateOptionsMenu();
+                        //TODO
+                        //Clear resultList when uploading a new image
+                    });
+                }
 
-                if (emotionBenchmark != null) {
-                    emotionBenchmark.reset();
+                @Override
+                public void onModelSwitchFailed(String failedModel, Exception error) {
+                    Log.e("MainActivity", "Error switching model: " + error.getMessage());
+                    runOnUiThread(() -> {
+                        Toast.makeText(MainActivity.this, "Error switching model", Toast.LENGTH_SHORT).show();
+                        // Centang tetap pada model yang masih aktif
+                        invalidateOptionsMenu();
+                    });
                 }
+            });
 
-                //TODO
-                //Clear resultList when uploading a new image
+            // Centang diperbarui di onPrepareOptionsMenu setelah model benar-benar berganti
+            return true;
+        }
 
-                return true;
-            } catch (IOException e) {
-                Log.e("MainActivity", "Error switching model: " + e.getMessage());
-                Toast.makeText(this, "Error switching model", Toast.LENGTH_SHORT).show();
-            }
+        if (id == R.id.action_ensemble_mode) {
+            boolean enable = !item.isChecked();
+            viewModel.setEnsembleMode(enable,
+                    settingCallback(enable ? "Ensemble mode enabled" : "Ensemble mode disabled"));
+            return true;
+        }
+
+        if (id == R.id.action_cascade_mode) {
+            boolean enable = !item.isChecked();
+            viewModel.setCascadeMode(enable,
+                    settingCallback(enable ? "Cascade mode enabled" : "Cascade mode disabled"));
+            return true;
+        }
+
+        if (id == R.id.backend_tflite || id == R.id.backend_executorch || id == R.id.backend_executorch_mlock) {
+            String backend = (id == R.id.backend_tflite) ? EmotionClassifier.BACKEND_TFLITE
+                    : (id == R.id.backend_executorch) ? EmotionClassifier.BACKEND_EXECUTORCH
+                    : EmotionClassifier.BACKEND_EXECUTORCH_MLOCK;
+            viewModel.setBackend(backend, settingCallback("Switched to " + item.getTitle()));
+            return true;
         }
 
         return super.onOptionsItemSelected(item);
     }
 
+    // Mode dan backend diterapkan di background; centang mengikuti state classifier setelah selesai
+    private EmotionClassifier.SettingCallback settingCallback(String successMessage) {
+        return new EmotionClassifier.SettingCallback() {
+            @Override
+            public void onSettingApplied() {
+                runOnUiThread(() -> {
+                    Toast.makeText(MainActivity.this, successMessage, Toast.LENGTH_SHORT).show();
+                    invalidateOptionsMenu();
+                    viewModel.getBenchmark().reset();
+                });
+            }
+
+            @Override
+            public void onSettingFailed(Exception error) {
+                Log.e("MainActivity", "Error applying setting: " + error.getMessage());
+                runOnUiThread(() -> {
+                    Toast.makeText(MainActivity.this, "Error applying setting", Toast.LENGTH_SHORT).show();
+                    invalidateOptionsMenu();
+                });
+            }
+        };
+    }
+
     @Override
     public boolean onPrepareOptionsMenu(Menu menu) {
         MenuItem selectModelItem = menu.findItem(R.id.action_select_model);
@@ -101,9 +153,34 @@ public class MainActivity extends AppCompatActivity {
             for (int i = 0; i < subMenu.size(); i++) {
                 MenuItem subMenuItem = subMenu.getItem(i);
                 if (subMenuItem.getItemId() == R.id.model_cnnresnet) {
-                    subMenuItem.setChecked(emotionClassifier.getCurrentModel().equals(EmotionClassifier.MODEL_CNN_RESNET));
+                    subMenuItem.setChecked(viewModel.getCurrentModel().equals(EmotionClassifier.MODEL_CNN_RESNET));
                 } else if (subMenuItem.getItemId() == R.id.model_kanresnet) {
-                    subMenuItem.setChecked(emotionClassifier.getCurrentModel().equals(EmotionClassifier.MODEL_KAN_RESNET));
+                    subMenuItem.setChecked(viewModel.getCurrentModel().equals(EmotionClassifier.MODEL_KAN_RESNET));
+                }
+            }
+        }
+
+        MenuItem ensembleItem = menu.findItem(R.id.action_ensemble_mode);
+        if (ensembleItem != null) {
+            ensembleItem.setChecked(viewModel.isEnsembleMode());
+        }
+        MenuItem cascadeItem = menu.findItem(R.id.action_cascade_mode);
+        if (cascadeItem != null) {
+            cascadeItem.setChecked(viewModel.isCascadeMode());
+        }
+
+        MenuItem backendItem = menu.findItem(R.id.action_select_backend);
+        if (backendItem != null && backendItem.hasSubMenu()) {
+            String backend = viewModel.getBackend();
+            Menu subMenu = backendItem.getSubMenu();
+            for (int i = 0; i < subMenu.size(); i++) {
+                MenuItem subMenuItem = subMenu.getItem(i);
+                if (subMenuItem.getItemId() == R.id.backend_tflite) {
+                    subMenuItem.setChecked(backend.equals(EmotionClassifier.BACKEND_TFLITE));
+                } else if (subMenuItem.getItemId() == R.id.backend_executorch) {
+                    subMenuItem.setChecked(backend.equals(EmotionClassifier.BACKEND_EXECUTORCH));
+                } else if (subMenuItem.getItemId() == R.id.backend_executorch_mlock) {
+                    subMenuItem.setChecked(backend.equals(EmotionClassifier.BACKEND_EXECUTORCH_MLOCK));
                 }
             }
         }
@@ -16,6 +16,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.provider.MediaStore;
 import android.util.Log;
+import android.util.Size;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -25,21 +26,32 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
+import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.face.Face;
 import com.google.mlkit.vision.face.FaceDetection;
 import com.google.mlkit.vision.face.FaceDetector;
 import com.google.mlkit.vision.face.FaceDetectorOptions;
+import com.gtek.fren.R;
 import com.gtek.fren.databinding.FragmentEmotionAnalysisBinding;
 import com.gtek.fren.ui.helper.EmotionAdapter;
 import com.gtek.fren.ui.helper.EmotionBenchmark;
 import com.gtek.fren.ui.helper.EmotionClassifier;
+import com.gtek.fren.ui.helper.FrameRateController;
+import com.gtek.fren.ui.helper.ImageProcessor;
+import com.gtek.fren.ui.helper.LiveFrameStats;
 
 import org.opencv.android.Utils;
 import org.opencv.core.Mat;
@@ -56,6 +68,9 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public class EmotionAnalysisFragment extends Fragment {
@@ -67,6 +82,27 @@ public class EmotionAnalysisFragment extends Fragment {
     private Handler benchmarkHandler;
     EmotionBenchmark emotionBenchmark;
 
+    // Mode live: resolusi analisis eksplisit; deteksi dan klasifikasi tidak butuh lebih dari ini
+    private static final Size LIVE_ANALYSIS_RESOLUTION = new Size(640, 480);
+    private static final long LIVE_STATS_INTERVAL_MS = 500;
+    private ProcessCameraProvider cameraProvider;
+    private ImageProcessor imageProcessor;
+    private ExecutorService analysisExecutor;
+    private boolean liveMode = false;
+    // true dari startLiveMode sampai bind kamera selesai atau gagal; cegah start ganda
+    private boolean liveStarting = false;
+    // Izin kamera diminta untuk mode live, bukan untuk mengambil foto
+    private boolean pendingLiveStart = false;
+    private final Runnable liveStatsUpdater = new Runnable() {
+        @Override
+        public void run() {
+            if (!liveMode || binding == null || imageProcessor == null) {
+                return;
+            }
+            updateLiveStatsDisplay(imageProcessor.getLiveStats(), imageProcessor.getRateStats());
+            benchmarkHandler.postDelayed(this, LIVE_STATS_INTERVAL_MS);
+        }
+    };
 
     private EmotionAdapter emotionAdapter;
 
@@ -75,11 +111,16 @@ public class EmotionAnalysisFragment extends Fragment {
                 if (isGranted) {
                     if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.CAMERA)
                             == PackageManager.PERMISSION_GRANTED) {
-                        launchCamera();
+                        if (pendingLiveStart) {
+                            startLiveMode();
+                        } else {
+                            launchCamera();
+                        }
                     }
                 } else {
                     Toast.makeText(requireContext(), "Permission required for camera", Toast.LENGTH_SHORT).show();
                 }
+                pendingLiveStart = false;
             });
 
     private final ActivityResultLauncher<Intent> imagePickerLauncher =
@@ -120,7 +161,8 @@ public class EmotionAnalysisFragment extends Fragment {
                              ViewGroup container, Bundle savedInstanceState) {
         EmotionAnalysisViewModel.EmotionAnalysisViewModelFactory factory =
                 new EmotionAnalysisViewModel.EmotionAnalysisViewModelFactory(requireActivity().getApplication());
-        viewModel = new ViewModelProvider(this, factory).get(EmotionAnalysisViewModel.class);
+        // Scope activity: menu pemilihan model di MainActivity memakai classifier yang sama
+        viewModel = new ViewModelProvider(requireActivity(), factory).get(EmotionAnalysisViewModel.class);
         binding = FragmentEmotionAnalysisBinding.inflate(inflater, container, false);
         return binding.getRoot();
     }
@@ -151,6 +193,18 @@ public class EmotionAnalysisFragment extends Fragment {
 
         binding.cameraButton.setOnClickListener(v -> checkCameraPermission());
 
+        binding.liveButton.setOnClickListener(v -> {
+            if (liveMode) {
+                stopLiveMode();
+            } else if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.CAMERA)
+                    != PackageManager.PERMISSION_GRANTED) {
+                pendingLiveStart = true;
+                requestPermissionLauncher.launch(Manifest.permission.CAMERA);
+            } else {
+                startLiveMode();
+            }
+        });
+
         binding.analyzeButton.setOnClickListener(v -> analyzeImage());
     }
 
@@ -229,6 +283,129 @@ public class EmotionAnalysisFragment extends Fragment {
                 100 - metrics.accuracy));
     }
 
+    private void updateLiveStatsDisplay(LiveFrameStats.Snapshot stats, FrameRateController.RateStats rate) {
+        binding.liveStatsText.setText(String.format(Locale.US,
+                "FPS: %.1f (rate %.1f/%.1f)\n" +
+                        "Latency: %.1f ms (last %.1f ms)\n" +
+                        "Detect/Prep/Infer: %.1f/%.1f/%.1f ms\n" +
+                        "Dropped: %d/%d",
+                stats.fps,
+                rate.currentFps,
+                rate.targetFps,
+                stats.avgLatencyMs,
+                stats.lastLatencyMs,
+                rate.detectMs,
+                rate.preprocessMs,
+                rate.inferMs,
+                stats.framesDropped,
+                stats.framesDropped + stats.framesCompleted));
+    }
+
+    // Mode live: Preview + ImageAnalysis (KEEP_ONLY_LATEST, YUV_420_888) dari kamera depan,
+    // setiap frame diproses ImageProcessor langsung dari plane Y
+    private void startLiveMode() {
+        if (liveMode || liveStarting) {
+            return;
+        }
+        imageProcessor = viewModel.createImageProcessor(binding.liveOverlay);
+        if (imageProcessor == null) {
+            showError("Classifier is not ready yet");
+            return;
+        }
+        liveStarting = true;
+        // Tombol diaktifkan lagi setelah bind berhasil atau gagal
+        binding.liveButton.setEnabled(false);
+        // Preview kamera depan dicerminkan oleh PreviewView
+        imageProcessor.setMirrorOverlay(true);
+        analysisExecutor = Executors.newSingleThreadExecutor();
+
+        ListenableFuture<ProcessCameraProvider> providerFuture =
+                ProcessCameraProvider.getInstance(requireContext());
+        providerFuture.addListener(() -> {
+            if (!liveStarting || binding == null || imageProcessor == null) {
+                // Mode live sudah dihentikan selama menunggu camera provider
+                return;
+            }
+            try {
+                cameraProvider = providerFuture.get();
+                bindLiveUseCases();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Failed to get camera provider: " + e.getMessage());
+                showError("Camera unavailable: " + e.getMessage());
+                stopLiveMode();
+            }
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+
+    private void bindLiveUseCases() {
+        Preview preview = new Preview.Builder().build();
+        preview.setSurfaceProvider(binding.livePreview.getSurfaceProvider());
+
+        ResolutionSelector resolutionSelector = new ResolutionSelector.Builder()
+                .setResolutionStrategy(new ResolutionStrategy(LIVE_ANALYSIS_RESOLUTION,
+                        ResolutionStrategy.FALLBACK_RULE_CLOSEST_LOWER_THEN_HIGHER))
+                .build();
+        // Hanya frame terbaru yang dianalisis; frame yang datang saat sibuk dibuang oleh CameraX
+        ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                .setResolutionSelector(resolutionSelector)
+                .build();
+        ImageProcessor processor = imageProcessor;
+        imageAnalysis.setAnalyzer(analysisExecutor, processor::processImageWithFaceDetection);
+
+        try {
+            cameraProvider.unbindAll();
+            cameraProvider.bindToLifecycle(getViewLifecycleOwner(),
+                    CameraSelector.DEFAULT_FRONT_CAMERA, preview, imageAnalysis);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            Log.e(TAG, "Failed to bind camera use cases: " + e.getMessage());
+            showError("Failed to start camera: " + e.getMessage());
+            stopLiveMode();
+            return;
+        }
+
+        liveStarting = false;
+        liveMode = true;
+        binding.liveButton.setEnabled(true);
+        binding.imagePreview.setVisibility(View.INVISIBLE);
+        binding.livePreview.setVisibility(View.VISIBLE);
+        binding.liveOverlay.setVisibility(View.VISIBLE);
+        binding.liveStatsText.setVisibility(View.VISIBLE);
+        binding.analyzeButton.setEnabled(false);
+        binding.liveButton.setText(R.string.stop_live_mode);
+        benchmarkHandler.postDelayed(liveStatsUpdater, LIVE_STATS_INTERVAL_MS);
+        Log.d(TAG, "Live mode started");
+    }
+
+    private void stopLiveMode() {
+        liveMode = false;
+        liveStarting = false;
+        benchmarkHandler.removeCallbacks(liveStatsUpdater);
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+        }
+        if (analysisExecutor != null) {
+            analysisExecutor.shutdown();
+            analysisExecutor = null;
+        }
+        if (imageProcessor != null) {
+            Log.d(TAG, "Live mode stopped: " + imageProcessor.getLiveStats());
+            imageProcessor.cleanup();
+            imageProcessor = null;
+        }
+        if (binding != null) {
+            binding.liveOverlay.clear();
+            binding.liveOverlay.setVisibility(View.GONE);
+            binding.livePreview.setVisibility(View.GONE);
+            binding.liveStatsText.setVisibility(View.GONE);
+            binding.imagePreview.setVisibility(View.VISIBLE);
+            binding.analyzeButton.setEnabled(photoUri != null);
+            binding.liveButton.setText(R.string.live_mode);
+            binding.liveButton.setEnabled(true);
+        }
+    }
+
     private void checkCameraPermission() {
         if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.CAMERA)
                 != PackageManager.PERMISSION_GRANTED) {
@@ -336,8 +513,11 @@ public class EmotionAnalysisFragment extends Fragment {
             );
 
             Bitmap finalBitmap = bitmap;
+            // Crop, inferensi dan menggambar hasil di executor inferensi; hanya
+            // setImageBitmap yang kembali ke main thread
+            ExecutorService inferenceExecutor = viewModel.getInferenceExecutor();
             detector.process(inputImage)
-                    .addOnSuccessListener(faces -> {
+                    .addOnSuccessListener(inferenceExecutor, faces -> {
                         if (faces.isEmpty()) {
                             showNoFacesDetected();
                             imageMat.release();
@@ -427,13 +607,13 @@ public class EmotionAnalysisFragment extends Fragment {
                             }
                         }
 
-                        binding.imagePreview.setImageBitmap(mutableBitmap);
+                        showAnnotatedImage(mutableBitmap);
                         imageMat.release();
                         grayMat.release();
                         viewModel.getBenchmark().endEvaluation();
                         viewModel.logPerformanceMetrics();
                     })
-                    .addOnFailureListener(e -> {
+                    .addOnFailureListener(inferenceExecutor, e -> {
                         Log.e(TAG, "Face detection failed: " + e.getMessage());
                         showError("Face detection failed: " + e.getMessage());
                         imageMat.release();
@@ -452,7 +632,21 @@ public class EmotionAnalysisFragment extends Fragment {
         }
     }
 
+    // Dipanggil dari executor inferensi; view hanya disentuh di main thread
+    private void showAnnotatedImage(Bitmap annotated) {
+        if (isAdded()) {
+            requireActivity().runOnUiThread(() -> {
+                if (binding != null) {
+                    binding.imagePreview.setImageBitmap(annotated);
+                }
+            });
+        }
+    }
+
     private void showNoFacesDetected() {
+        if (!isAdded()) {
+            return;
+        }
         requireActivity().runOnUiThread(() -> {
             Toast.makeText(requireContext(),
                     "No faces detected in the image",
@@ -502,6 +696,7 @@ public class EmotionAnalysisFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        stopLiveMode();
         // Clean up RecyclerView
         if (binding != null) {
             binding.resultList.setAdapter(null);
@@ -12,6 +12,9 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.gtek.fren.ui.helper.EmotionBenchmark;
 import com.gtek.fren.ui.helper.EmotionClassifier;
+import com.gtek.fren.ui.helper.FaceOverlayView;
+import com.gtek.fren.ui.helper.ImageProcessor;
+import com.gtek.fren.ui.helper.InferenceThreadFactory;
 
 import org.opencv.core.Mat;
 
@@ -33,7 +36,10 @@ public class EmotionAnalysisViewModel extends AndroidViewModel {
     public LiveData<Boolean> isInitialized = _isInitialized;
 
     private final ExecutorService executorService = Executors.newFixedThreadPool(2);
-    private EmotionClassifier emotionClassifier;
+    // Pekerjaan setelah deteksi wajah (crop, inferensi, gambar hasil), di luar main thread
+    private final ExecutorService inferenceExecutor =
+            InferenceThreadFactory.newInferenceExecutor("emotion-inference");
+    private volatile EmotionClassifier emotionClassifier;
     private final EmotionBenchmark benchmark;
     private final MutableLiveData<EmotionBenchmark.BenchmarkMetrics> _benchmarkMetrics = new MutableLiveData<>();
     public LiveData<EmotionBenchmark.BenchmarkMetrics> benchmarkMetrics = _benchmarkMetrics;
@@ -41,6 +47,10 @@ public class EmotionAnalysisViewModel extends AndroidViewModel {
     public EmotionBenchmark getBenchmark() {
         return benchmark;
     }
+
+    public ExecutorService getInferenceExecutor() {
+        return inferenceExecutor;
+    }
     public void setEmotionResults(List<EmotionClassifier.EmotionResult> results) {
         _emotionResults.postValue(results);
     }
@@ -73,7 +83,10 @@ public class EmotionAnalysisViewModel extends AndroidViewModel {
     private void initializeEmotionClassifier(Application application) {
         executorService.execute(() -> {
             try {
-                emotionClassifier = new EmotionClassifier(application.getApplicationContext());
+                // Satu interpreter per thread executor agar analisis bisa berjalan paralel
+                emotionClassifier = new EmotionClassifier(application.getApplicationContext(),
+                        EmotionClassifier.DEFAULT_POOL_SIZE);
+                emotionClassifier.setBenchmark(benchmark);
                 _isInitialized.postValue(true);
                 Log.d(TAG, "EmotionClassifier initialized successfully");
             } catch (Exception e) {
@@ -110,6 +123,74 @@ public class EmotionAnalysisViewModel extends AndroidViewModel {
         return new ArrayList<>();
     }
 
+    // Processor untuk mode live; hasil dan error dipublikasikan ke LiveData ViewModel ini.
+    // null jika classifier belum siap.
+    public ImageProcessor createImageProcessor(FaceOverlayView overlayView) {
+        if (emotionClassifier == null) {
+            return null;
+        }
+        return new ImageProcessor(inferenceExecutor, emotionClassifier, _emotionResults, _error,
+                overlayView, benchmark);
+    }
+
+    // Ganti model classifier milik ViewModel ini (satu-satunya classifier di aplikasi)
+    public void switchModel(String model, EmotionClassifier.ModelSwitchCallback callback) {
+        EmotionClassifier classifier = emotionClassifier;
+        if (classifier == null) {
+            callback.onModelSwitchFailed(model, new IllegalStateException("System not initialized"));
+            return;
+        }
+        classifier.switchModelAsync(model, callback);
+    }
+
+    public String getCurrentModel() {
+        EmotionClassifier classifier = emotionClassifier;
+        return classifier != null ? classifier.getCurrentModel() : EmotionClassifier.MODEL_CNN_RESNET;
+    }
+
+    // Mode dan backend dari menu MainActivity; dijalankan di loader thread classifier
+    public void setEnsembleMode(boolean enabled, EmotionClassifier.SettingCallback callback) {
+        EmotionClassifier classifier = emotionClassifier;
+        if (classifier == null) {
+            callback.onSettingFailed(new IllegalStateException("System not initialized"));
+            return;
+        }
+        classifier.setEnsembleModeAsync(enabled, callback);
+    }
+
+    public void setCascadeMode(boolean enabled, EmotionClassifier.SettingCallback callback) {
+        EmotionClassifier classifier = emotionClassifier;
+        if (classifier == null) {
+            callback.onSettingFailed(new IllegalStateException("System not initialized"));
+            return;
+        }
+        classifier.setCascadeModeAsync(enabled, callback);
+    }
+
+    public void setBackend(String backend, EmotionClassifier.SettingCallback callback) {
+        EmotionClassifier classifier = emotionClassifier;
+        if (classifier == null) {
+            callback.onSettingFailed(new IllegalStateException("System not initialized"));
+            return;
+        }
+        classifier.setBackendAsync(backend, callback);
+    }
+
+    public boolean isEnsembleMode() {
+        EmotionClassifier classifier = emotionClassifier;
+        return classifier != null && classifier.isEnsembleMode();
+    }
+
+    public boolean isCascadeMode() {
+        EmotionClassifier classifier = emotionClassifier;
+        return classifier != null && classifier.isCascadeMode();
+    }
+
+    public String getBackend() {
+        EmotionClassifier classifier = emotionClassifier;
+        return classifier != null ? classifier.getBackend() : EmotionClassifier.BACKEND_TFLITE;
+    }
+
     public void logPerformanceMetrics() {
         benchmark.logDetailedMetrics();
         _benchmarkMetrics.postValue(benchmark.getDetailedMetrics());
@@ -123,7 +204,9 @@ public class EmotionAnalysisViewModel extends AndroidViewModel {
 
     public void cleanup() {
         executorService.shutdown();
+        inferenceExecutor.shutdown();
         if (emotionClassifier != null) {
+            emotionClassifier.close();
             emotionClassifier = null;
         }
         _emotionResults.postValue(new ArrayList<>());
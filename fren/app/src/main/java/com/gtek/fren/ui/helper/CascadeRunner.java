@@ -0,0 +1,124 @@
+package com.gtek.fren.ui.helper;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cascade dua model: model primer (ringan) dijalankan untuk semua wajah, model sekunder
+// hanya untuk wajah yang selisih top-1 dan top-2 probabilitasnya di bawah ambang batas.
+public class CascadeRunner {
+
+    private static final long ACQUIRE_TIMEOUT_MS = 1000;
+
+    private final InterpreterPool primary;
+    private final InterpreterPool secondary;
+    final String primaryModel;
+    final String secondaryModel;
+    // Dalam persen, sama seperti EmotionScores
+    final float marginThreshold;
+    private volatile EmotionBenchmark benchmark;
+
+    CascadeRunner(InterpreterPool primary, String primaryModel,
+                  InterpreterPool secondary, String secondaryModel,
+                  float marginThreshold) {
+        this.primary = primary;
+        this.primaryModel = primaryModel;
+        this.secondary = secondary;
+        this.secondaryModel = secondaryModel;
+        this.marginThreshold = marginThreshold;
+    }
+
+    void setBenchmark(EmotionBenchmark benchmark) {
+        this.benchmark = benchmark;
+    }
+
+    // Satu wajah tanpa list pembungkus
+    void run(Mat face, EmotionScores out) throws Exception {
+        long primaryStart = System.nanoTime();
+        InferenceSession session = primary.acquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        try {
+            out.setFromLogits(session.run(face), 0);
+        } finally {
+            primary.release(session);
+        }
+        long primaryNanos = System.nanoTime() - primaryStart;
+
+        boolean escalated = out.getMargin() < marginThreshold;
+        long secondaryNanos = 0;
+        if (escalated) {
+            long secondaryStart = System.nanoTime();
+            session = secondary.acquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            try {
+                out.setFromLogits(session.run(face), 0);
+            } finally {
+                secondary.release(session);
+            }
+            secondaryNanos = System.nanoTime() - secondaryStart;
+        }
+
+        EmotionBenchmark currentBenchmark = benchmark;
+        if (currentBenchmark != null) {
+            currentBenchmark.recordCascade(1, escalated ? 1 : 0, primaryNanos, secondaryNanos);
+        }
+    }
+
+    // out.get(indices[slot]) diisi untuk faces.get(slot); indices null berarti identitas
+    void run(List<Mat> faces, int[] indices, List<EmotionScores> out) throws Exception {
+        long primaryStart = System.nanoTime();
+        InferenceSession session = primary.acquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        try {
+            float[] logits = faces.size() == 1 ? session.run(faces.get(0)) : session.runBatch(faces);
+            for (int slot = 0; slot < faces.size(); slot++) {
+                out.get(indexOf(indices, slot)).setFromLogits(logits, slot * EmotionClassifier.NUM_EMOTIONS);
+            }
+        } finally {
+            primary.release(session);
+        }
+        long primaryNanos = System.nanoTime() - primaryStart;
+
+        // Kumpulkan wajah yang belum meyakinkan; list hanya dibuat jika ada yang perlu dieskalasi
+        List<Mat> uncertainFaces = null;
+        List<EmotionScores> uncertainScores = null;
+        for (int slot = 0; slot < faces.size(); slot++) {
+            EmotionScores scores = out.get(indexOf(indices, slot));
+            if (scores.getMargin() < marginThreshold) {
+                if (uncertainFaces == null) {
+                    uncertainFaces = new ArrayList<>();
+                    uncertainScores = new ArrayList<>();
+                }
+                uncertainFaces.add(faces.get(slot));
+                uncertainScores.add(scores);
+            }
+        }
+
+        long secondaryNanos = 0;
+        if (uncertainFaces != null) {
+            long secondaryStart = System.nanoTime();
+            session = secondary.acquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            try {
+                float[] logits = uncertainFaces.size() == 1
+                        ? session.run(uncertainFaces.get(0))
+                        : session.runBatch(uncertainFaces);
+                for (int i = 0; i < uncertainScores.size(); i++) {
+                    uncertainScores.get(i).setFromLogits(logits, i * EmotionClassifier.NUM_EMOTIONS);
+                }
+            } finally {
+                secondary.release(session);
+            }
+            secondaryNanos = System.nanoTime() - secondaryStart;
+        }
+
+        EmotionBenchmark currentBenchmark = benchmark;
+        if (currentBenchmark != null) {
+            currentBenchmark.recordCascade(faces.size(),
+                    uncertainFaces != null ? uncertainFaces.size() : 0,
+                    primaryNanos, secondaryNanos);
+        }
+    }
+
+    private static int indexOf(int[] indices, int slot) {
+        return indices != null ? indices[slot] : slot;
+    }
+}
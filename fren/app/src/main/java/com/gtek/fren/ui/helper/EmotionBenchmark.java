@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
+// Ditulis dari thread inferensi dan dibaca dari UI thread: semua state dijaga oleh lock
+// instance ini (method publik synchronized; helper private hanya dipanggil di dalamnya)
 public class EmotionBenchmark {
     private static final String TAG = "EnhancedEmotionBenchmark";
 
@@ -24,12 +26,23 @@ public class EmotionBenchmark {
     private int totalPredictions = 0;
     private final Map<String, Integer> confusionMatrix = new HashMap<>();
 
+    // Cascade metrics (model primer -> sekunder)
+    private long cascadeFaces = 0;
+    private long cascadeEscalations = 0;
+    private long cascadePrimaryNanos = 0;
+    private long cascadeSecondaryNanos = 0;
+
+    // Laju analisis adaptif mode live (lihat FrameRateController)
+    private float analysisFps = 0;
+    private String rateReason = "";
+    private long rateAdjustments = 0;
+
     // Resource usage metrics
     private long peakMemoryUsage = 0;
     private float cpuUsage = 0;
     private Debug.MemoryInfo memoryInfo = new Debug.MemoryInfo();
 
-    public void startEvaluation() {
+    public synchronized void startEvaluation() {
         detectionStartTime = System.nanoTime();
         recordMemoryUsage();
 
@@ -40,7 +53,7 @@ public class EmotionBenchmark {
         memoryUsages.clear();
     }
 
-    public void endEvaluation() {
+    public synchronized void endEvaluation() {
         long duration = System.nanoTime() - detectionStartTime;
         processingTimes.add(duration);
         totalProcessingTime += duration;
@@ -58,6 +71,50 @@ public class EmotionBenchmark {
         }
     }
 
+    // Dipanggil dari thread inferensi, bisa bersamaan
+    public synchronized void recordCascade(int faces, int escalated, long primaryNanos, long secondaryNanos) {
+        cascadeFaces += faces;
+        cascadeEscalations += escalated;
+        cascadePrimaryNanos += primaryNanos;
+        cascadeSecondaryNanos += secondaryNanos;
+    }
+
+    // Persentase wajah yang cukup diselesaikan oleh model primer
+    public synchronized double getCascadeHitRate() {
+        return cascadeFaces > 0 ? ((cascadeFaces - cascadeEscalations) * 100.0) / cascadeFaces : 0;
+    }
+
+    public synchronized long getCascadeEscalations() {
+        return cascadeEscalations;
+    }
+
+    // Rata-rata latensi cascade per wajah (primer + eskalasi) dalam ms
+    public synchronized double getCascadeAvgLatencyPerFace() {
+        return cascadeFaces > 0
+                ? ((cascadePrimaryNanos + cascadeSecondaryNanos) / (double) cascadeFaces) / 1_000_000.0
+                : 0;
+    }
+
+    // Dipanggil dari thread inferensi setiap kali laju analisis berubah
+    public synchronized void recordFrameRate(float fps, String reason) {
+        analysisFps = fps;
+        rateReason = reason;
+        rateAdjustments++;
+    }
+
+    public synchronized float getAnalysisFps() {
+        return analysisFps;
+    }
+
+    // Alasan penyesuaian laju terakhir, mis. "back off: latency 300 ms > budget 250 ms"
+    public synchronized String getRateReason() {
+        return rateReason;
+    }
+
+    public synchronized long getRateAdjustments() {
+        return rateAdjustments;
+    }
+
     private void recordMemoryUsage() {
         Runtime runtime = Runtime.getRuntime();
         long usedMemory = runtime.totalMemory() - runtime.freeMemory();
@@ -80,7 +137,7 @@ public class EmotionBenchmark {
         }
     }
 
-    public void logDetailedMetrics() {
+    public synchronized void logDetailedMetrics() {
         if (frameCount == 0) return;
 
         // Calculate performance metrics
@@ -116,9 +173,37 @@ public class EmotionBenchmark {
         ));
 
         logConfusionMatrix();
+        logCascadeMetrics();
+        logFrameRateMetrics();
+    }
+
+    private void logFrameRateMetrics() {
+        if (rateAdjustments == 0) return;
+        Log.i(TAG, String.format(Locale.US,
+                "5. Live Frame Rate:\n" +
+                        "   - Analysis Rate: %.1f fps\n" +
+                        "   - Adjustments: %d\n" +
+                        "   - Last Reason: %s\n",
+                analysisFps,
+                rateAdjustments,
+                rateReason));
+    }
+
+    private void logCascadeMetrics() {
+        if (cascadeFaces == 0) return;
+        Log.i(TAG, String.format(Locale.US,
+                "4. Cascade Metrics:\n" +
+                        "   - Faces: %d\n" +
+                        "   - Resolved by Primary: %.2f%%\n" +
+                        "   - Escalations: %d\n" +
+                        "   - Average Latency per Face: %.2f ms\n",
+                cascadeFaces,
+                getCascadeHitRate(),
+                cascadeEscalations,
+                getCascadeAvgLatencyPerFace()));
     }
 
-    public BenchmarkMetrics getDetailedMetrics() {
+    public synchronized BenchmarkMetrics getDetailedMetrics() {
         if (frameCount == 0) return new BenchmarkMetrics();
 
         double avgProcessingTime = calculateAverage(processingTimes) / 1_000_000.0; // Convert to ms
@@ -204,7 +289,7 @@ public class EmotionBenchmark {
         return Math.sqrt(sumSquaredDiff / values.size());
     }
 
-    public void reset() {
+    public synchronized void reset() {
         totalProcessingTime = 0;
         totalMemoryUsed = 0;
         frameCount = 0;
@@ -216,5 +301,12 @@ public class EmotionBenchmark {
         confusionMatrix.clear();
         peakMemoryUsage = 0;
         cpuUsage = 0;
+        cascadeFaces = 0;
+        cascadeEscalations = 0;
+        cascadePrimaryNanos = 0;
+        cascadeSecondaryNanos = 0;
+        analysisFps = 0;
+        rateReason = "";
+        rateAdjustments = 0;
     }
 }
\ No newline at end of file
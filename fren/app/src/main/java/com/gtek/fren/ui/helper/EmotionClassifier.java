@@ -5,32 +5,75 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.gtek.fren.BuildConfig;
+
 import org.opencv.android.OpenCVLoader;
 import org.opencv.core.Mat;
-import org.tensorflow.lite.Interpreter;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class EmotionClassifier {
 
     private static final String TAG = "EmotionClassifier";
     public static final String MODEL_CNN_RESNET = "cnnresnet.tflite";
     public static final String MODEL_KAN_RESNET = "kanresnet.tflite";
-    private static String currentModel = MODEL_CNN_RESNET;
+    // Engine inferensi; model ExecuTorch memakai asset .pte dengan nama dasar yang sama
+    public static final String BACKEND_TFLITE = TfLiteBackend.NAME;
+    public static final String BACKEND_EXECUTORCH = ExecuTorchBackend.NAME;
+    // ExecuTorch dengan bobot model di-mlock
+    public static final String BACKEND_EXECUTORCH_MLOCK = ExecuTorchBackend.NAME_MLOCK;
     private static final String[] EMOTION_CLASSES = {
             "angry", "disgust", "fear", "happy", "neutral", "sad", "surprise"
     };
-    private Interpreter interpreter;
-    private static Context context;
+    public static final int NUM_EMOTIONS = EMOTION_CLASSES.length;
+    private static final boolean DEBUG_LOG = BuildConfig.DEBUG;
+    // Jumlah interpreter default; sama dengan ukuran thread pool di EmotionAnalysisViewModel
+    public static final int DEFAULT_POOL_SIZE = 2;
+    private static final long ACQUIRE_TIMEOUT_MS = 1000;
+    // Margin top-1/top-2 (0-1) untuk cascade yang diaktifkan dari menu
+    public static final float DEFAULT_CASCADE_MARGIN = 0.2f;
+    private final int poolSize;
+    private final ModelRegistry modelRegistry;
+    private volatile InterpreterPool interpreterPool;
+    // Mode ensemble: {CNN, KAN}; null jika hanya satu model yang dipakai
+    private volatile InterpreterPool[] ensemblePools;
+    private final EnsembleRunner ensembleRunner;
+    // Mode cascade: null jika tidak aktif
+    private volatile CascadeRunner cascadeRunner;
+    private volatile EmotionBenchmark benchmark;
+    // Per instance: setiap classifier punya model aktifnya sendiri
+    private volatile String currentModel = MODEL_CNN_RESNET;
+    private final Context context;
+    // Model baru dibangun di thread ini, bukan di thread pemanggil (UI)
+    private final ExecutorService loaderExecutor = Executors.newSingleThreadExecutor();
+    // Holder sesi pinjaman per thread, agar acquireLease() tidak membuat objek per frame
+    private final ThreadLocal<Lease> leases = ThreadLocal.withInitial(Lease::new);
+
+    public interface ModelSwitchCallback {
+        void onModelSwitched(String modelName);
+
+        void onModelSwitchFailed(String modelName, Exception error);
+    }
+
+    // Hasil perubahan mode/backend yang dijalankan di loaderExecutor
+    public interface SettingCallback {
+        void onSettingApplied();
+
+        void onSettingFailed(Exception error);
+    }
+
+    private interface Setting {
+        void apply() throws IOException;
+    }
 
     static {
         try {
@@ -45,10 +88,21 @@ public class EmotionClassifier {
     }
 
     public EmotionClassifier(Context context) {
-        this.context = context;
+        this(context, DEFAULT_POOL_SIZE);
+    }
+
+    public EmotionClassifier(Context context, int poolSize) {
+        this(context, poolSize, ModelRegistry.DEFAULT_MEMORY_BUDGET_BYTES);
+    }
+
+    public EmotionClassifier(Context context, int poolSize, long modelMemoryBudgetBytes) {
         if (context == null) {
             throw new IllegalArgumentException("Context cannot be null");
         }
+        this.context = context.getApplicationContext();
+        this.poolSize = poolSize;
+        this.modelRegistry = new ModelRegistry(this.context, poolSize, modelMemoryBudgetBytes);
+        this.ensembleRunner = new EnsembleRunner(poolSize);
 
         try {
             // Load model default (CNN ResNet)
@@ -66,137 +120,494 @@ public class EmotionClassifier {
         }
     }
 
-    // Method untuk mendapatkan nama model saat ini
-    public String getCurrentModel() {
-        return currentModel;
+    // Ganti model di background; klasifikasi tetap berjalan dengan model lama sampai model baru siap
+    public void switchModelAsync(String modelName, ModelSwitchCallback callback) {
+        loaderExecutor.execute(() -> {
+            try {
+                switchModel(modelName);
+                callback.onModelSwitched(modelName);
+            } catch (Exception e) {
+                Log.e(TAG, "Error switching model: " + e.getMessage(), e);
+                callback.onModelSwitchFailed(modelName, e);
+            }
+        });
     }
 
-    // Method untuk loading model
-    private void loadModel(String modelName) throws IOException {
-        String modelPath = assetFilePath(context, modelName);
-        if (modelPath != null) {
-            File modelFile = new File(modelPath);
-            Interpreter.Options options = new Interpreter.Options();
+    // Versi async untuk menu: model dimuat di loaderExecutor, bukan di UI thread
+    public void setBackendAsync(String backendName, SettingCallback callback) {
+        applyAsync("backend " + backendName, () -> setBackend(backendName), callback);
+    }
 
-            // Tutup interpreter yang ada jika sudah ada
-            if (interpreter != null) {
-                interpreter.close();
+    public void setEnsembleModeAsync(boolean enabled, SettingCallback callback) {
+        applyAsync("ensemble mode", () -> setEnsembleMode(enabled), callback);
+    }
+
+    // Cascade dari menu: CNN untuk semua wajah, KAN jika margin di bawah DEFAULT_CASCADE_MARGIN
+    public void setCascadeModeAsync(boolean enabled, SettingCallback callback) {
+        applyAsync("cascade mode", () -> {
+            if (enabled) {
+                setCascadeMode(MODEL_CNN_RESNET, MODEL_KAN_RESNET, DEFAULT_CASCADE_MARGIN);
+            } else {
+                disableCascadeMode();
             }
+        }, callback);
+    }
 
-            interpreter = new Interpreter(modelFile, options);
+    private void applyAsync(String description, Setting setting, SettingCallback callback) {
+        loaderExecutor.execute(() -> {
+            try {
+                setting.apply();
+                callback.onSettingApplied();
+            } catch (Exception e) {
+                Log.e(TAG, "Error changing " + description + ": " + e.getMessage(), e);
+                callback.onSettingFailed(e);
+            } catch (LinkageError e) {
+                // Mis. UnsatisfiedLinkError saat library native ExecuTorch dimuat; jangan
+                // sampai membunuh loader thread tanpa memberi tahu pemanggil
+                Log.e(TAG, "Error changing " + description + ": " + e.getMessage(), e);
+                callback.onSettingFailed(new IllegalStateException(
+                        "Native library unavailable for " + description, e));
+            }
+        });
+    }
 
-            Log.d(TAG, "Model loaded successfully");
-            Log.d(TAG, "Model name: " + modelName);
-            Log.d(TAG, "Model path: " + modelPath);
-            Log.d(TAG, "Model file exists: " + modelFile.exists());
-            Log.d(TAG, "Model file size: " + modelFile.length() + " bytes");
+    // Ganti engine inferensi. Semua pool yang sedang dipakai (model aktif, ensemble, cascade)
+    // dibangun ulang di backend baru sebelum ditukar; jangan dipanggil dari UI thread.
+    public synchronized void setBackend(String backendName) throws IOException {
+        if (backendName.equals(modelRegistry.getBackendName())) {
+            return;
+        }
+        InferenceBackend previous = modelRegistry.setBackend(createBackend(backendName));
+        try {
+            InterpreterPool newPool = modelRegistry.getOrLoad(currentModel);
+            InterpreterPool[] newEnsemblePools = null;
+            if (ensemblePools != null) {
+                newEnsemblePools = new InterpreterPool[]{
+                        modelRegistry.getOrLoad(MODEL_CNN_RESNET),
+                        modelRegistry.getOrLoad(MODEL_KAN_RESNET)};
+            }
+            CascadeRunner runner = cascadeRunner;
+            CascadeRunner newRunner = null;
+            if (runner != null) {
+                newRunner = new CascadeRunner(modelRegistry.getOrLoad(runner.primaryModel), runner.primaryModel,
+                        modelRegistry.getOrLoad(runner.secondaryModel), runner.secondaryModel,
+                        runner.marginThreshold);
+                newRunner.setBenchmark(benchmark);
+            }
 
-            // Verify model with dummy input
-            float[][][][] dummyInput = new float[1][48][48][1];
-            float[][] dummyOutput = new float[1][7];
-            interpreter.run(dummyInput, dummyOutput);
+            interpreterPool = newPool;
+            if (newEnsemblePools != null) {
+                ensemblePools = newEnsemblePools;
+            }
+            if (newRunner != null) {
+                cascadeRunner = newRunner;
+            }
+        } catch (IOException | RuntimeException | LinkageError e) {
+            // LinkageError: library native backend baru gagal dimuat saat pool pertama dibuat
+            modelRegistry.setBackend(previous);
+            throw e;
+        }
+        trimRegistry();
+        Log.d(TAG, "Inference backend: " + backendName);
+    }
 
-            Log.d(TAG, "Model verification successful");
-            currentModel = modelName;
+    public String getBackend() {
+        return modelRegistry.getBackendName();
+    }
+
+    private InferenceBackend createBackend(String backendName) {
+        switch (backendName) {
+            case BACKEND_TFLITE:
+                return new TfLiteBackend(context, poolSize);
+            case BACKEND_EXECUTORCH:
+                return new ExecuTorchBackend(false);
+            case BACKEND_EXECUTORCH_MLOCK:
+                return new ExecuTorchBackend(true);
+            default:
+                throw new IllegalArgumentException("Unknown inference backend: " + backendName);
+        }
+    }
+
+    // Mode ensemble: CNN dan KAN dijalankan bersamaan lalu logits digabung dengan bobot.
+    // Memuat model yang belum termuat, jadi jangan dipanggil dari UI thread.
+    public synchronized void setEnsembleMode(boolean enabled) throws IOException {
+        if (enabled) {
+            InterpreterPool cnnPool = modelRegistry.getOrLoad(MODEL_CNN_RESNET);
+            InterpreterPool kanPool = modelRegistry.getOrLoad(MODEL_KAN_RESNET);
+            cascadeRunner = null;
+            ensemblePools = new InterpreterPool[]{cnnPool, kanPool};
         } else {
-            throw new RuntimeException("Error loading model file from assets");
+            ensemblePools = null;
         }
+        trimRegistry();
+        Log.d(TAG, "Ensemble mode " + (enabled ? "enabled" : "disabled"));
+    }
+
+    // Mode cascade: primaryModel untuk semua wajah, secondaryModel hanya jika selisih
+    // top-1 dan top-2 di bawah marginThreshold (0-1). Jangan dipanggil dari UI thread.
+    public synchronized void setCascadeMode(String primaryModel, String secondaryModel,
+                                            float marginThreshold) throws IOException {
+        InterpreterPool primaryPool = modelRegistry.getOrLoad(primaryModel);
+        InterpreterPool secondaryPool = modelRegistry.getOrLoad(secondaryModel);
+        CascadeRunner runner = new CascadeRunner(primaryPool, primaryModel,
+                secondaryPool, secondaryModel, marginThreshold * 100f);
+        runner.setBenchmark(benchmark);
+        ensemblePools = null;
+        cascadeRunner = runner;
+        trimRegistry();
+        Log.d(TAG, "Cascade mode enabled: " + primaryModel + " -> " + secondaryModel
+                + " below margin " + marginThreshold);
+    }
+
+    public synchronized void disableCascadeMode() {
+        cascadeRunner = null;
+        trimRegistry();
+        Log.d(TAG, "Cascade mode disabled");
     }
 
-    private String assetFilePath(Context context, String assetName) throws IOException {
-        File file = new File(context.getFilesDir(), assetName);
-        if (file.exists() && file.length() > 0) {
-            Log.d(TAG, "Model found in internal storage: " + file.getAbsolutePath());
-            return file.getAbsolutePath();
+    public boolean isCascadeMode() {
+        return cascadeRunner != null;
+    }
+
+    // Statistik cascade (hit-rate, eskalasi) dicatat ke benchmark ini
+    public void setBenchmark(EmotionBenchmark benchmark) {
+        this.benchmark = benchmark;
+        CascadeRunner runner = cascadeRunner;
+        if (runner != null) {
+            runner.setBenchmark(benchmark);
         }
+    }
 
-        Log.d(TAG, "Copying model from assets to internal storage: " + file.getAbsolutePath());
-        try (InputStream is = context.getAssets().open(assetName);
-             OutputStream os = new FileOutputStream(file)) {
-            byte[] buffer = new byte[4 * 1024];
-            int read;
-            while ((read = is.read(buffer)) != -1) {
-                os.write(buffer, 0, read);
-            }
-            os.flush();
+    // Model aktif dan model yang dipakai ensemble/cascade tidak boleh dikeluarkan dari registry
+    private void trimRegistry() {
+        CascadeRunner runner = cascadeRunner;
+        if (ensemblePools != null) {
+            modelRegistry.trimToBudget(currentModel, MODEL_CNN_RESNET, MODEL_KAN_RESNET);
+        } else if (runner != null) {
+            modelRegistry.trimToBudget(currentModel, runner.primaryModel, runner.secondaryModel);
+        } else {
+            modelRegistry.trimToBudget(currentModel);
         }
-        Log.d(TAG, "Model copied successfully to internal storage");
-        return file.getAbsolutePath();
+    }
+
+    public boolean isEnsembleMode() {
+        return ensemblePools != null;
+    }
+
+    // Hanya API (tidak ada di menu): bobot default 0.5/0.5
+    public void setEnsembleWeights(float cnnWeight, float kanWeight) {
+        ensembleRunner.setWeights(cnnWeight, kanWeight);
+    }
+
+    public EnsembleRunner.EnsembleTiming getEnsembleTiming() {
+        return ensembleRunner.getLastTiming();
+    }
+
+    // Method untuk mendapatkan nama model saat ini
+    public String getCurrentModel() {
+        return currentModel;
+    }
+
+    // Method untuk loading model
+    private synchronized void loadModel(String modelName) throws IOException {
+        // Model yang masih termuat di registry langsung dipakai tanpa memuat ulang
+        InterpreterPool newPool = modelRegistry.getOrLoad(modelName);
+
+        // Tukar secara atomik; pool lama tetap termuat kecuali melebihi budget memori,
+        // dan pool yang dikeluarkan ditutup setelah panggilan yang sedang berjalan selesai
+        interpreterPool = newPool;
+        currentModel = modelName;
+        trimRegistry();
+
+        Log.d(TAG, "Model loaded successfully");
+        Log.d(TAG, "Model name: " + modelName);
+        Log.d(TAG, "Interpreter pool size: " + poolSize);
     }
 
     public List<EmotionResult> classify(Mat faceImage) {
+        EmotionScores scores = EmotionScores.obtain();
+        try {
+            if (!classifyInto(faceImage, scores)) {
+                return Collections.emptyList();
+            }
+            List<EmotionResult> results = new ArrayList<>(NUM_EMOTIONS);
+            scores.appendResults(results);
+            return results;
+        } finally {
+            scores.recycle();
+        }
+    }
+
+    // Klasifikasi satu wajah ke holder milik pemanggil; tidak ada alokasi pada kondisi stabil
+    public boolean classifyInto(Mat faceImage, EmotionScores out) {
+        out.invalidate();
         try {
             if (faceImage == null || faceImage.empty()) {
                 Log.e(TAG, "Invalid input image");
-                return Collections.emptyList();
+                return false;
             }
 
-            // Prepare input data
-            float[][][][] inputArray = new float[1][48][48][1];
-            for (int y = 0; y < 48; y++) {
-                for (int x = 0; x < 48; x++) {
-                    double[] pixel = faceImage.get(y, x);
-                    if (pixel != null && pixel.length > 0) {
-                        // Normalize pixel value (0-1)
-                        inputArray[0][y][x][0] = (float) (pixel[0] / 255.0);
-                    }
-                }
+            InterpreterPool[] ensemble = ensemblePools;
+            if (ensemble != null) {
+                ensembleRunner.run(ensemble[0], ensemble[1], faceImage, out);
+                return true;
             }
 
-            // Prepare output array
-            float[][] outputArray = new float[1][7];
+            CascadeRunner cascade = cascadeRunner;
+            if (cascade != null) {
+                cascade.run(faceImage, out);
+                return true;
+            }
+
+            try (Lease lease = acquireLease()) {
+                // Run inference langsung dari buffer input milik sesi
+                float[] logits = lease.session.run(faceImage);
+                postprocess(logits, 0, out);
+                return true;
+            }
 
-            // Run inference
-            interpreter.run(inputArray, outputArray);
+        } catch (Exception e) {
+            Log.e(TAG, "Classification error: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // Klasifikasi semua wajah dalam satu frame dengan satu pemanggilan interpreter
+    public List<List<EmotionResult>> classifyBatch(List<Mat> faceImages) {
+        List<EmotionScores> scores = new ArrayList<>(faceImages.size());
+        for (int i = 0; i < faceImages.size(); i++) {
+            scores.add(EmotionScores.obtain());
+        }
 
-            // Process results
-            float[] scores = outputArray[0];
-            float[] probs = softmax(scores);
+        classifyBatchInto(faceImages, scores);
 
-            List<EmotionResult> results = new ArrayList<>();
-            for (int i = 0; i < EMOTION_CLASSES.length; i++) {
-                results.add(new EmotionResult(EMOTION_CLASSES[i], probs[i]));
+        List<List<EmotionResult>> batchResults = new ArrayList<>(faceImages.size());
+        for (EmotionScores faceScores : scores) {
+            if (faceScores.isValid()) {
+                List<EmotionResult> results = new ArrayList<>(NUM_EMOTIONS);
+                faceScores.appendResults(results);
+                batchResults.add(results);
+            } else {
+                batchResults.add(Collections.emptyList());
             }
-            return results;
+            faceScores.recycle();
+        }
+        return batchResults;
+    }
+
+    // Versi batch dari classifyInto: out.get(i) diisi untuk faceImages.get(i),
+    // wajah yang tidak valid atau gagal ditandai !isValid()
+    public void classifyBatchInto(List<Mat> faceImages, List<EmotionScores> out) {
+        if (out.size() < faceImages.size()) {
+            throw new IllegalArgumentException("Need one EmotionScores per face");
+        }
+        List<Mat> validFaces = faceImages;
+        int[] validIndices = null;
+        for (int i = 0; i < faceImages.size(); i++) {
+            out.get(i).invalidate();
+            Mat face = faceImages.get(i);
+            if (face == null || face.empty()) {
+                Log.e(TAG, "Invalid input image at batch index " + i);
+                validFaces = null;
+            }
+        }
+        if (validFaces == null) {
+            // Jalur jarang: saring wajah yang tidak valid
+            validFaces = new ArrayList<>(faceImages.size());
+            validIndices = new int[faceImages.size()];
+            for (int i = 0; i < faceImages.size(); i++) {
+                Mat face = faceImages.get(i);
+                if (face != null && !face.empty()) {
+                    validIndices[validFaces.size()] = i;
+                    validFaces.add(face);
+                }
+            }
+        }
+        if (validFaces.isEmpty()) {
+            return;
+        }
+
+        InterpreterPool[] ensemble = ensemblePools;
+        if (ensemble != null) {
+            try {
+                ensembleRunner.run(ensemble[0], ensemble[1], validFaces, validIndices, out);
+            } catch (Exception e) {
+                Log.e(TAG, "Ensemble classification error: " + e.getMessage(), e);
+            }
+            return;
+        }
+
+        CascadeRunner cascade = cascadeRunner;
+        if (cascade != null) {
+            try {
+                cascade.run(validFaces, validIndices, out);
+            } catch (Exception e) {
+                Log.e(TAG, "Cascade classification error: " + e.getMessage(), e);
+            }
+            return;
+        }
 
+        Lease lease;
+        try {
+            lease = acquireLease();
         } catch (Exception e) {
             Log.e(TAG, "Classification error: " + e.getMessage(), e);
-            return Collections.emptyList();
+            return;
+        }
+        InferenceSession session = lease.session;
+
+        try {
+            float[] logits = session.runBatch(validFaces);
+
+            // Pecah output [N,7] kembali menjadi hasil per wajah
+            for (int slot = 0; slot < validFaces.size(); slot++) {
+                int index = validIndices != null ? validIndices[slot] : slot;
+                postprocess(logits, slot, out.get(index));
+            }
+        } catch (Exception e) {
+            // Model dengan batch tetap: kembali ke klasifikasi satu per satu
+            Log.w(TAG, "Batch inference failed, falling back to per-face: " + e.getMessage());
+            for (int slot = 0; slot < validFaces.size(); slot++) {
+                int index = validIndices != null ? validIndices[slot] : slot;
+                try {
+                    postprocess(session.run(validFaces.get(slot)), 0, out.get(index));
+                } catch (Exception faceError) {
+                    Log.e(TAG, "Classification error: " + faceError.getMessage(), faceError);
+                }
+            }
+        } finally {
+            lease.close();
         }
     }
 
-    private float[] softmax(float[] scores) {
-        float maxScore = Float.NEGATIVE_INFINITY;
-        for (float score : scores) {
-            if (score > maxScore) {
-                maxScore = score;
+    // Klasifikasi wajah langsung dari plane luma kamera. regions berisi (left, top, width, height)
+    // per wajah yang sudah divalidasi; out.get(i) diisi untuk wajah ke-i. Pada mode satu model
+    // kernel preprocessing menulis langsung ke buffer input sesi, tanpa Mat perantara.
+    // Mat untuk mode ensemble/cascade dipinjam dari frame.
+    void classifyRegionsInto(LumaPlane luma, int[] regions, int count,
+                             FrameArena.Frame frame, List<EmotionScores> out) {
+        if (out.size() < count) {
+            throw new IllegalArgumentException("Need one EmotionScores per face");
+        }
+        for (int i = 0; i < count; i++) {
+            out.get(i).invalidate();
+        }
+        if (count == 0) {
+            return;
+        }
+
+        if (ensemblePools != null || cascadeRunner != null) {
+            // Ensemble/cascade bekerja dengan Mat 48x48; kernel yang sama membuatnya
+            List<Mat> faces = frame.faceBatch;
+            faces.clear();
+            for (int i = 0; i < count; i++) {
+                int r = i * 4;
+                frame.faceKernel.resizeToBytes(luma.buffer, luma.rowStride, luma.pixelStride,
+                        regions[r], regions[r + 1], regions[r + 2], regions[r + 3], luma.rotationDegrees,
+                        frame.facePixels);
+                Mat face = frame.faceMat(i);
+                face.put(0, 0, frame.facePixels);
+                faces.add(face);
             }
+            try {
+                classifyBatchInto(faces, out);
+            } finally {
+                faces.clear();
+            }
+            return;
         }
 
-        float[] exps = new float[scores.length];
-        float expSum = 0.0f;
-        for (int i = 0; i < scores.length; i++) {
-            exps[i] = (float) Math.exp(scores[i] - maxScore);
-            expSum += exps[i];
+        Lease lease;
+        try {
+            lease = acquireLease();
+        } catch (Exception e) {
+            Log.e(TAG, "Classification error: " + e.getMessage(), e);
+            return;
         }
 
-        float[] probabilities = new float[scores.length];
-        if (expSum > 0) {
-            for (int i = 0; i < scores.length; i++) {
-                probabilities[i] = (exps[i] / expSum) * 100;
+        try {
+            float[] logits = lease.session.runRegions(luma, regions, 0, count);
+            for (int slot = 0; slot < count; slot++) {
+                postprocess(logits, slot, out.get(slot));
+            }
+        } catch (Exception e) {
+            // Model dengan batch tetap: kembali ke klasifikasi satu per satu
+            Log.w(TAG, "Batch inference failed, falling back to per-face: " + e.getMessage());
+            for (int slot = 0; slot < count; slot++) {
+                try {
+                    postprocess(lease.session.runRegions(luma, regions, slot, 1), 0, out.get(slot));
+                } catch (Exception faceError) {
+                    Log.e(TAG, "Classification error: " + faceError.getMessage(), faceError);
+                }
             }
+        } finally {
+            lease.close();
         }
+    }
 
-        Log.d(TAG, "Raw scores: " + Arrays.toString(scores));
-        Log.d(TAG, "After softmax: " + Arrays.toString(probabilities));
+    public static String getEmotionLabel(int index) {
+        return EMOTION_CLASSES[index];
+    }
 
-        float sum = 0;
-        for (float prob : probabilities) {
-            sum += prob;
+    // Pinjam sesi dari pool aktif; jika pool baru saja diganti, pinjam dari pool pengganti
+    private Lease acquireLease() throws InterruptedException, TimeoutException {
+        InterpreterPool pool = interpreterPool;
+        while (true) {
+            try {
+                return leases.get().hold(pool, pool.acquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            } catch (IllegalStateException | TimeoutException e) {
+                // Pool ditukar (ganti model/backend) selama menunggu: coba lagi di pool yang baru
+                if (pool == interpreterPool) {
+                    throw e;
+                }
+                pool = interpreterPool;
+            }
         }
-        Log.d(TAG, "Total probability: " + sum + "%");
+    }
+
+    public InterpreterPool.PoolMetrics getPoolMetrics() {
+        return interpreterPool.getMetrics();
+    }
+
+    public List<ModelRegistry.ModelStats> getModelStats() {
+        return modelRegistry.getStats();
+    }
+
+    public void close() {
+        loaderExecutor.shutdown();
+        ensembleRunner.close();
+        modelRegistry.closeAll();
+    }
+
+    private void postprocess(float[] logits, int row, EmotionScores out) {
+        out.setFromLogits(logits, row * NUM_EMOTIONS);
 
-        return probabilities;
+        // Debug logging hanya di build debug; di release tidak ada string yang dibuat
+        if (DEBUG_LOG) {
+            Log.d(TAG, "Raw scores: " + Arrays.toString(
+                    Arrays.copyOfRange(logits, row * NUM_EMOTIONS, (row + 1) * NUM_EMOTIONS)));
+            Log.d(TAG, "After softmax: " + out);
+        }
+    }
+
+    // Satu holder per thread yang dipakai ulang; satu thread hanya memegang satu sesi sekaligus
+    private static final class Lease implements AutoCloseable {
+        InterpreterPool pool;
+        InferenceSession session;
+
+        Lease hold(InterpreterPool pool, InferenceSession session) {
+            this.pool = pool;
+            this.session = session;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            InferenceSession held = session;
+            session = null;
+            pool.release(held);
+            pool = null;
+        }
     }
 
     public static class EmotionResult {
@@ -0,0 +1,153 @@
+package com.gtek.fren.ui.helper;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+import java.util.Locale;
+
+// Hasil klasifikasi satu wajah dalam array primitif yang dipakai ulang: probabilitas
+// (persen, seperti EmotionResult) dan urutan indeks dari yang paling yakin.
+// Ambil dengan obtain() dan kembalikan dengan recycle() agar tidak ada garbage per wajah.
+public final class EmotionScores {
+
+    private static final int MAX_POOL_SIZE = 32;
+    private static final Object POOL_LOCK = new Object();
+    private static final EmotionScores[] POOL = new EmotionScores[MAX_POOL_SIZE];
+    private static int poolCount = 0;
+
+    private final float[] probabilities = new float[EmotionClassifier.NUM_EMOTIONS];
+    private final int[] ranking = new int[EmotionClassifier.NUM_EMOTIONS];
+    private boolean valid = false;
+
+    public EmotionScores() {
+    }
+
+    public static EmotionScores obtain() {
+        synchronized (POOL_LOCK) {
+            if (poolCount > 0) {
+                EmotionScores scores = POOL[--poolCount];
+                POOL[poolCount] = null;
+                return scores;
+            }
+        }
+        return new EmotionScores();
+    }
+
+    public void recycle() {
+        valid = false;
+        synchronized (POOL_LOCK) {
+            if (poolCount < MAX_POOL_SIZE) {
+                POOL[poolCount++] = this;
+            }
+        }
+    }
+
+    // Softmax numerik-stabil dari logits[offset .. offset+7) lalu urutkan indeks (top-k)
+    void setFromLogits(float[] logits, int offset) {
+        int count = probabilities.length;
+        float maxScore = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            maxScore = Math.max(maxScore, logits[offset + i]);
+        }
+
+        float expSum = 0.0f;
+        for (int i = 0; i < count; i++) {
+            float exp = (float) Math.exp(logits[offset + i] - maxScore);
+            probabilities[i] = exp;
+            expSum += exp;
+        }
+        float scale = expSum > 0 ? 100f / expSum : 0f;
+        for (int i = 0; i < count; i++) {
+            probabilities[i] *= scale;
+        }
+        rank();
+        valid = true;
+    }
+
+    // Salin probabilitas (persen) yang sudah jadi, mis. distribusi hasil smoothing
+    void setFromProbabilities(float[] source, int offset) {
+        System.arraycopy(source, offset, probabilities, 0, probabilities.length);
+        rank();
+        valid = true;
+    }
+
+    // Insertion sort atas 7 indeks: tanpa boxing dan tanpa Comparator
+    private void rank() {
+        int count = probabilities.length;
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            int j = i - 1;
+            while (j >= 0 && probabilities[ranking[j]] < probabilities[index]) {
+                ranking[j + 1] = ranking[j];
+                j--;
+            }
+            ranking[j + 1] = index;
+        }
+    }
+
+    public void copyFrom(EmotionScores other) {
+        System.arraycopy(other.probabilities, 0, probabilities, 0, probabilities.length);
+        System.arraycopy(other.ranking, 0, ranking, 0, ranking.length);
+        valid = other.valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public int size() {
+        return probabilities.length;
+    }
+
+    public float getProbability(int emotionIndex) {
+        return probabilities[emotionIndex];
+    }
+
+    // Indeks emosi pada peringkat ke-rank (0 = paling yakin)
+    public int getRankedIndex(int rank) {
+        return ranking[rank];
+    }
+
+    public int getTopIndex() {
+        return ranking[0];
+    }
+
+    public String getTopEmotion() {
+        return EmotionClassifier.getEmotionLabel(ranking[0]);
+    }
+
+    public float getTopConfidence() {
+        return probabilities[ranking[0]];
+    }
+
+    // Selisih top-1 dan top-2 (persen); kecil berarti model ragu
+    public float getMargin() {
+        return probabilities[ranking[0]] - probabilities[ranking[1]];
+    }
+
+    // Salin isi ke array milik pemanggil
+    public void copyProbabilitiesTo(float[] target) {
+        System.arraycopy(probabilities, 0, target, 0, probabilities.length);
+    }
+
+    // Untuk API lama berbasis EmotionResult (mengalokasikan objek hasil)
+    public void appendResults(List<EmotionClassifier.EmotionResult> target) {
+        for (int i = 0; i < probabilities.length; i++) {
+            target.add(new EmotionClassifier.EmotionResult(EmotionClassifier.getEmotionLabel(i), probabilities[i]));
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        if (!valid) {
+            return "EmotionScores{invalid}";
+        }
+        return String.format(Locale.US, "EmotionScores{top='%s', confidence=%.2f%%}",
+                getTopEmotion(), getTopConfidence());
+    }
+}
@@ -0,0 +1,252 @@
+package com.gtek.fren.ui.helper;
+
+import android.util.Log;
+
+import com.gtek.fren.BuildConfig;
+
+import org.opencv.core.Mat;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Menjalankan dua model (CNN dan KAN) bersamaan pada wajah yang sama, masing-masing
+// di interpreter dan thread sendiri, lalu menggabungkan logits dengan bobot.
+// Latensi wall-clock mendekati max(model) alih-alih jumlah keduanya.
+public class EnsembleRunner {
+
+    private static final String TAG = "EnsembleRunner";
+    private static final long ACQUIRE_TIMEOUT_MS = 1000;
+    // Ukuran awal scratch; batch yang lebih besar memperbesar scratch sekali
+    private static final int MAX_BATCH = FaceTrackScheduler.MAX_TRACKS;
+
+    private final ExecutorService secondaryExecutor;
+    // Scratch per pemanggilan yang sedang berjalan; dipakai ulang agar tidak ada alokasi array per frame
+    private final BlockingQueue<Scratch> scratchPool;
+    private volatile float primaryWeight = 0.5f;
+    private volatile float secondaryWeight = 0.5f;
+    // Timing terakhir disimpan sebagai primitif; snapshot hanya dibuat saat diminta
+    private final Object timingLock = new Object();
+    private long lastPrimaryNanos = 0;
+    private long lastSecondaryNanos = 0;
+    private long lastFusedNanos = 0;
+
+    public EnsembleRunner(int parallelism) {
+        int threads = Math.max(1, parallelism);
+        this.secondaryExecutor = Executors.newFixedThreadPool(threads);
+        // Satu scratch per thread pemanggil; lebih dari itu dibuat sementara
+        this.scratchPool = new ArrayBlockingQueue<>(threads + 1);
+        for (int i = 0; i < threads + 1; i++) {
+            scratchPool.offer(new Scratch());
+        }
+    }
+
+    // Bobot dinormalisasi sehingga jumlahnya 1
+    public void setWeights(float primary, float secondary) {
+        float sum = primary + secondary;
+        if (primary < 0 || secondary < 0 || sum <= 0) {
+            throw new IllegalArgumentException("Ensemble weights must be non-negative and not both zero");
+        }
+        primaryWeight = primary / sum;
+        secondaryWeight = secondary / sum;
+    }
+
+    // Satu wajah, hasil langsung ke out
+    void run(InterpreterPool primary, InterpreterPool secondary, Mat face, EmotionScores out) throws Exception {
+        Scratch scratch = obtainScratch(1);
+        try {
+            scratch.face = face;
+            runInto(primary, secondary, scratch, 1);
+            out.setFromLogits(scratch.fused, 0);
+        } finally {
+            releaseScratch(scratch);
+        }
+    }
+
+    // out.get(indices[slot]) diisi untuk faces.get(slot); indices null berarti identitas.
+    // Model sekunder dijalankan di executor, model primer di thread pemanggil.
+    void run(InterpreterPool primary, InterpreterPool secondary, List<Mat> faces, int[] indices,
+             List<EmotionScores> out) throws Exception {
+        Scratch scratch = obtainScratch(faces.size());
+        try {
+            scratch.faces = faces;
+            runInto(primary, secondary, scratch, faces.size());
+            for (int slot = 0; slot < faces.size(); slot++) {
+                out.get(indices != null ? indices[slot] : slot)
+                        .setFromLogits(scratch.fused, slot * EmotionClassifier.NUM_EMOTIONS);
+            }
+        } finally {
+            releaseScratch(scratch);
+        }
+    }
+
+    // Logits gabungan [count*7] ditulis ke scratch.fused
+    private void runInto(InterpreterPool primary, InterpreterPool secondary, Scratch scratch, int count)
+            throws Exception {
+        int length = count * EmotionClassifier.NUM_EMOTIONS;
+        long start = System.nanoTime();
+        scratch.secondaryPool = secondary;
+        // Tugas sekunder ikut memegang scratch sampai selesai (lihat Scratch.call)
+        scratch.users.incrementAndGet();
+        Future<Long> secondaryTask;
+        try {
+            secondaryTask = secondaryExecutor.submit(scratch);
+        } catch (RejectedExecutionException e) {
+            scratch.users.decrementAndGet();
+            throw e;
+        }
+        long primaryNanos;
+        long secondaryNanos;
+        try {
+            primaryNanos = runModel(primary, scratch, scratch.fused, length);
+            secondaryNanos = secondaryTask.get(2 * ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // cancel(false) tidak menghentikan tugas yang sudah berjalan. Tunggu sebentar agar
+            // wajah milik pemanggil tidak lagi dibaca setelah run() kembali; jika masih berjalan,
+            // scratch baru kembali ke pool saat tugas sekunder selesai.
+            if (secondaryTask.cancel(false)) {
+                // Tugas tidak pernah berjalan, jadi tidak akan melepas scratch sendiri
+                releaseScratch(scratch);
+            } else {
+                awaitQuietly(secondaryTask);
+            }
+            throw e;
+        }
+
+        float wPrimary = primaryWeight;
+        float wSecondary = secondaryWeight;
+        float[] fused = scratch.fused;
+        float[] secondaryLogits = scratch.secondaryLogits;
+        for (int i = 0; i < length; i++) {
+            fused[i] = wPrimary * fused[i] + wSecondary * secondaryLogits[i];
+        }
+
+        long totalNanos = System.nanoTime() - start;
+        synchronized (timingLock) {
+            lastPrimaryNanos = primaryNanos;
+            lastSecondaryNanos = secondaryNanos;
+            lastFusedNanos = totalNanos;
+        }
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, getLastTiming().toString());
+        }
+    }
+
+    // Jalankan satu model dan salin logits-nya ke out; mengembalikan durasi inferensi (ns)
+    private static long runModel(InterpreterPool pool, Scratch scratch, float[] out, int length)
+            throws Exception {
+        InferenceSession session = pool.acquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        try {
+            long start = System.nanoTime();
+            float[] logits = scratch.face != null ? session.run(scratch.face) : session.runBatch(scratch.faces);
+            System.arraycopy(logits, 0, out, 0, length);
+            return System.nanoTime() - start;
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    private static void awaitQuietly(Future<Long> task) {
+        try {
+            task.get(2 * ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Hasil tugas sekunder tidak dipakai lagi
+        }
+    }
+
+    private Scratch obtainScratch(int batchSize) {
+        Scratch scratch = scratchPool.poll();
+        if (scratch == null) {
+            scratch = new Scratch();
+        }
+        scratch.ensureCapacity(batchSize);
+        scratch.users.set(1);
+        return scratch;
+    }
+
+    // Dipanggil pemanggil dan tugas sekunder; yang terakhir selesai mengembalikan scratch ke pool
+    private void releaseScratch(Scratch scratch) {
+        if (scratch.users.decrementAndGet() != 0) {
+            return;
+        }
+        scratch.face = null;
+        scratch.faces = null;
+        scratch.secondaryPool = null;
+        scratchPool.offer(scratch);
+    }
+
+    // Jumlah scratch yang menganggur di pool (untuk pengujian)
+    int getIdleScratchCount() {
+        return scratchPool.size();
+    }
+
+    public EnsembleTiming getLastTiming() {
+        synchronized (timingLock) {
+            return new EnsembleTiming(lastPrimaryNanos / 1_000_000.0,
+                    lastSecondaryNanos / 1_000_000.0, lastFusedNanos / 1_000_000.0);
+        }
+    }
+
+    public void close() {
+        secondaryExecutor.shutdown();
+    }
+
+    // Buffer logits untuk satu pemanggilan; juga tugas model sekunder yang dikirim ke executor
+    private final class Scratch implements Callable<Long> {
+        // Pemegang aktif: pemanggil run() dan, selama berjalan, tugas sekunder
+        final AtomicInteger users = new AtomicInteger();
+        float[] fused = new float[MAX_BATCH * EmotionClassifier.NUM_EMOTIONS];
+        float[] secondaryLogits = new float[MAX_BATCH * EmotionClassifier.NUM_EMOTIONS];
+        // Salah satu terisi: face untuk satu wajah, faces untuk batch
+        Mat face;
+        List<Mat> faces;
+        InterpreterPool secondaryPool;
+        int batchSize;
+
+        void ensureCapacity(int size) {
+            batchSize = size;
+            int length = size * EmotionClassifier.NUM_EMOTIONS;
+            if (fused.length < length) {
+                fused = new float[length];
+                secondaryLogits = new float[length];
+            }
+        }
+
+        @Override
+        public Long call() throws Exception {
+            try {
+                return runModel(secondaryPool, this, secondaryLogits, batchSize * EmotionClassifier.NUM_EMOTIONS);
+            } finally {
+                releaseScratch(this);
+            }
+        }
+    }
+
+    public static class EnsembleTiming {
+        public final double primaryMs;
+        public final double secondaryMs;
+        public final double fusedMs;
+
+        public EnsembleTiming(double primaryMs, double secondaryMs, double fusedMs) {
+            this.primaryMs = primaryMs;
+            this.secondaryMs = secondaryMs;
+            this.fusedMs = fusedMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "EnsembleTiming{primary=%.2f ms, secondary=%.2f ms, fused=%.2f ms}",
+                    primaryMs, secondaryMs, fusedMs);
+        }
+    }
+}
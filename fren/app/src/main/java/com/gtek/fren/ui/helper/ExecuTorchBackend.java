@@ -0,0 +1,49 @@
+package com.gtek.fren.ui.helper;
+
+import org.pytorch.executorch.Module;
+
+// Backend ExecuTorch: model .pte di-mmap dari file cache karena Module butuh path.
+// Dengan mmap, semua sesi di pool berbagi halaman bobot yang sama lewat page cache.
+final class ExecuTorchBackend implements InferenceBackend {
+
+    static final String NAME = "executorch";
+    static final String NAME_MLOCK = "executorch-mlock";
+    private static final String MODEL_EXTENSION = ".pte";
+
+    private final boolean lockInMemory;
+
+    // lockInMemory: mlock bobot agar tidak di-page out; gagal mlock (batas RLIMIT_MEMLOCK)
+    // diabaikan dan model tetap berjalan sebagai mmap biasa
+    ExecuTorchBackend(boolean lockInMemory) {
+        this.lockInMemory = lockInMemory;
+    }
+
+    @Override
+    public String getName() {
+        return lockInMemory ? NAME_MLOCK : NAME;
+    }
+
+    // cnnresnet.tflite -> cnnresnet.pte
+    @Override
+    public String resolveAssetName(String modelName) {
+        int dot = modelName.lastIndexOf('.');
+        String baseName = dot >= 0 ? modelName.substring(0, dot) : modelName;
+        return baseName + MODEL_EXTENSION;
+    }
+
+    @Override
+    public boolean requiresModelFile() {
+        return true;
+    }
+
+    @Override
+    public InferenceSession createSession(ModelLoader.MappedModel model) {
+        if (model.file == null) {
+            throw new IllegalArgumentException("ExecuTorch needs a model file: " + model.name);
+        }
+        int loadMode = lockInMemory
+                ? Module.LOAD_MODE_MMAP_USE_MLOCK_IGNORE_ERRORS
+                : Module.LOAD_MODE_MMAP;
+        return new ExecuTorchSession(model.file.getAbsolutePath(), loadMode);
+    }
+}
@@ -0,0 +1,103 @@
+package com.gtek.fren.ui.helper;
+
+import android.util.Log;
+
+import org.pytorch.executorch.DType;
+import org.pytorch.executorch.EValue;
+import org.pytorch.executorch.Module;
+import org.pytorch.executorch.Tensor;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+// InferenceSession di atas satu ExecuTorch Module (.pte). Model diekspor dengan input
+// float [N,1,48,48]; untuk satu kanal tata letaknya sama dengan buffer input bersama.
+// Model dengan input/output selain float32 ditolak di verify().
+final class ExecuTorchSession extends InferenceSession {
+
+    private static final String TAG = "ExecuTorchSession";
+    private static final String METHOD_FORWARD = "forward";
+
+    private final Module module;
+    // Satu Tensor input per ukuran batch yang membungkus buffer input sesi ini. Buffer diisi
+    // ulang di tempat oleh preprocessing, sehingga Tensor, EValue, dan array argumen forward
+    // tidak dibuat per panggilan.
+    private final Map<Integer, CachedInput> cachedInputs = new HashMap<>();
+
+    // loadMode: Module.LOAD_MODE_MMAP atau varian mlock-nya
+    ExecuTorchSession(String modelPath, int loadMode) {
+        super(TensorSpec.FLOAT32, TensorSpec.FLOAT32);
+        this.module = Module.load(modelPath, null, loadMode);
+    }
+
+    // Muat method forward sekarang (bukan lazy pada inferensi pertama), lalu jalankan dummy input
+    @Override
+    void verify() {
+        long start = System.nanoTime();
+        int error = module.loadMethod(METHOD_FORWARD);
+        if (error != 0) {
+            throw new IllegalStateException("Failed to load method '" + METHOD_FORWARD + "', error " + error);
+        }
+        Log.d(TAG, "Method loaded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        // Metadata dtype method tidak tersedia lewat API Java: dummy input float32 dijalankan
+        // sekali, dan model yang tidak menerima float32 atau tidak mengeluarkan float32 gagal di sini
+        try {
+            super.verify();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("ExecuTorch model must take float32 [N,1,"
+                    + INPUT_SIZE + "," + INPUT_SIZE + "] input and return float32 logits: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    void invoke(TensorBuffers buffers) {
+        // Array argumen di-cache dan diteruskan langsung, jadi varargs forward tidak membuat
+        // EValue[] baru. Alokasi per panggilan yang tersisa ada di sisi API ExecuTorch: EValue[]
+        // dan Tensor output dari forward, serta float[] dari getDataAsFloatArray() (API publik
+        // tidak menyediakan salinan ke buffer milik pemanggil).
+        EValue[] outputs = module.forward(inputFor(buffers));
+        Tensor output = outputs[0].toTensor();
+        if (output.dtype() != DType.FLOAT) {
+            throw new IllegalStateException("Expected FLOAT output, got " + output.dtype());
+        }
+        float[] logits = output.getDataAsFloatArray();
+        if (logits.length != buffers.logits.length) {
+            throw new IllegalStateException("Unexpected output size " + logits.length
+                    + ", expected " + buffers.logits.length);
+        }
+        buffers.outputFloats.rewind();
+        buffers.outputFloats.put(logits);
+    }
+
+    // Buffer untuk satu ukuran batch bisa dibuat ulang setelah dikeluarkan dari cache
+    // InferenceSession; Tensor lama hanya dipakai selama masih menunjuk buffer yang sama
+    private EValue[] inputFor(TensorBuffers buffers) {
+        CachedInput cached = cachedInputs.get(buffers.batchSize);
+        if (cached == null || cached.source != buffers.input) {
+            // Tensor membungkus buffer input langsung (direct, native order), tanpa salinan
+            Tensor tensor = Tensor.fromBlob(buffers.input.asFloatBuffer(),
+                    new long[]{buffers.batchSize, 1, INPUT_SIZE, INPUT_SIZE});
+            cached = new CachedInput(buffers.input, new EValue[]{EValue.from(tensor)});
+            cachedInputs.put(buffers.batchSize, cached);
+        }
+        return cached.args;
+    }
+
+    @Override
+    void closeEngine() {
+        cachedInputs.clear();
+        module.destroy();
+    }
+
+    private static final class CachedInput {
+        final ByteBuffer source;
+        final EValue[] args;
+
+        CachedInput(ByteBuffer source, EValue[] args) {
+            this.source = source;
+            this.args = args;
+        }
+    }
+}
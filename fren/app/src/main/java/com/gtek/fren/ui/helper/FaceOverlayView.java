@@ -0,0 +1,183 @@
+package com.gtek.fren.ui.helper;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+// Overlay mode live: bounding box dan label emosi digambar langsung di onDraw, tanpa Bitmap
+// per frame. Data wajah disimpan di array primitif yang dialokasikan sekali; thread
+// inferensi mengisi buffer belakang (beginFrame/addFace/commit), lalu buffer ditukar
+// di bawah lock dan view cukup di-postInvalidate().
+public class FaceOverlayView extends View {
+
+    public static final int MAX_FACES = FaceTrackScheduler.MAX_TRACKS;
+    // Wajah tanpa hasil klasifikasi: hanya kotak, tanpa label
+    public static final int NO_EMOTION = -1;
+
+    private static final float BOX_STROKE_WIDTH = 3.0f;
+    private static final float LABEL_TEXT_SIZE_SP = 14f;
+    private static final float LABEL_MARGIN = 8f;
+
+    private final Paint boxPaint = new Paint();
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // Label per emosi dibuat sekali; persentase ditulis ke labelChars saat menggambar
+    private final String[] emotionLabels = new String[EmotionClassifier.NUM_EMOTIONS];
+    private final char[] labelChars = new char[32];
+
+    private final Object lock = new Object();
+    // Diisi thread produsen
+    private FaceFrame back = new FaceFrame();
+    // Frame terbaru yang sudah di-commit, belum digambar
+    private FaceFrame pending = new FaceFrame();
+    // Digambar di UI thread
+    private FaceFrame front = new FaceFrame();
+    private boolean hasPending = false;
+
+    public FaceOverlayView(Context context) {
+        this(context, null);
+    }
+
+    public FaceOverlayView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        boxPaint.setColor(Color.GREEN);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(BOX_STROKE_WIDTH);
+
+        labelPaint.setColor(Color.WHITE);
+        labelPaint.setStyle(Paint.Style.FILL);
+        labelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+                LABEL_TEXT_SIZE_SP, getResources().getDisplayMetrics()));
+        labelPaint.setShadowLayer(5.0f, 0f, 0f, Color.BLACK);
+
+        for (int i = 0; i < emotionLabels.length; i++) {
+            emotionLabels[i] = EmotionClassifier.getEmotionLabel(i).toUpperCase(Locale.US);
+        }
+    }
+
+    // Mulai frame baru di buffer belakang; koordinat wajah dalam frame tegak imageWidth x imageHeight
+    public void beginFrame(int imageWidth, int imageHeight, boolean mirrored) {
+        back.count = 0;
+        back.imageWidth = imageWidth;
+        back.imageHeight = imageHeight;
+        back.mirrored = mirrored;
+    }
+
+    // confidence dalam persen; wajah di atas MAX_FACES diabaikan
+    public void addFace(Rect box, int emotionIndex, float confidence) {
+        FaceFrame frame = back;
+        if (frame.count >= MAX_FACES) {
+            return;
+        }
+        int i = frame.count++;
+        frame.boxes[i * 4] = box.left;
+        frame.boxes[i * 4 + 1] = box.top;
+        frame.boxes[i * 4 + 2] = box.right;
+        frame.boxes[i * 4 + 3] = box.bottom;
+        frame.emotions[i] = emotionIndex;
+        frame.confidences[i] = confidence;
+    }
+
+    // Terbitkan buffer belakang untuk digambar; aman dipanggil dari thread mana pun
+    public void commit() {
+        synchronized (lock) {
+            FaceFrame committed = back;
+            back = pending;
+            pending = committed;
+            hasPending = true;
+        }
+        postInvalidate();
+    }
+
+    // Kosongkan overlay; tidak menyentuh buffer belakang sehingga aman dari thread lain
+    public void clear() {
+        synchronized (lock) {
+            pending.count = 0;
+            hasPending = true;
+        }
+        postInvalidate();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        synchronized (lock) {
+            if (hasPending) {
+                FaceFrame latest = pending;
+                pending = front;
+                front = latest;
+                hasPending = false;
+            }
+        }
+
+        FaceFrame frame = front;
+        if (frame.count == 0 || frame.imageWidth <= 0 || frame.imageHeight <= 0) {
+            return;
+        }
+        // Skala seragam dan terpusat, sama dengan preview fitCenter
+        float scale = Math.min((float) getWidth() / frame.imageWidth,
+                (float) getHeight() / frame.imageHeight);
+        float offsetX = (getWidth() - frame.imageWidth * scale) / 2f;
+        float offsetY = (getHeight() - frame.imageHeight * scale) / 2f;
+
+        for (int i = 0; i < frame.count; i++) {
+            float boxLeft = frame.boxes[i * 4];
+            float boxRight = frame.boxes[i * 4 + 2];
+            if (frame.mirrored) {
+                float mirroredLeft = frame.imageWidth - boxRight;
+                boxRight = frame.imageWidth - boxLeft;
+                boxLeft = mirroredLeft;
+            }
+            float left = offsetX + boxLeft * scale;
+            float top = offsetY + frame.boxes[i * 4 + 1] * scale;
+            float right = offsetX + boxRight * scale;
+            float bottom = offsetY + frame.boxes[i * 4 + 3] * scale;
+            canvas.drawRect(left, top, right, bottom, boxPaint);
+
+            int emotion = frame.emotions[i];
+            if (emotion >= 0 && emotion < emotionLabels.length) {
+                int length = formatLabel(emotionLabels[emotion], frame.confidences[i]);
+                canvas.drawText(labelChars, 0, length, left, Math.max(labelPaint.getTextSize(),
+                        top - LABEL_MARGIN), labelPaint);
+            }
+        }
+    }
+
+    // "LABEL: 87%" ke labelChars tanpa String.format; mengembalikan panjangnya
+    private int formatLabel(String label, float confidence) {
+        int length = Math.min(label.length(), labelChars.length - 6);
+        label.getChars(0, length, labelChars, 0);
+        labelChars[length++] = ':';
+        labelChars[length++] = ' ';
+        int percent = Math.max(0, Math.min(100, Math.round(confidence)));
+        if (percent >= 100) {
+            labelChars[length++] = '1';
+        }
+        if (percent >= 10) {
+            labelChars[length++] = (char) ('0' + (percent / 10) % 10);
+        }
+        labelChars[length++] = (char) ('0' + percent % 10);
+        labelChars[length++] = '%';
+        return length;
+    }
+
+    private static final class FaceFrame {
+        // left, top, right, bottom per wajah
+        final float[] boxes = new float[MAX_FACES * 4];
+        final int[] emotions = new int[MAX_FACES];
+        final float[] confidences = new float[MAX_FACES];
+        int count = 0;
+        int imageWidth = 0;
+        int imageHeight = 0;
+        boolean mirrored = false;
+    }
+}
@@ -0,0 +1,141 @@
+package com.gtek.fren.ui.helper;
+
+import android.os.SystemClock;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Cache hasil klasifikasi per tracking ID ML Kit. Setiap entri menyimpan dHash 64-bit dari
+// potongan wajah; inferensi dilewati selama wajah hampir tidak berubah (jarak Hamming kecil)
+// dan entri belum kedaluwarsa. Tidak dipakai untuk wajah tanpa tracking ID.
+public class FaceResultCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+    public static final long DEFAULT_TTL_MS = 1000;
+    // Dari 64 bit; noise sensor biasanya hanya mengubah beberapa bit
+    public static final int DEFAULT_MAX_HASH_DISTANCE = 6;
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final int maxHashDistance;
+    // Access-order: entri yang paling lama tidak dilihat dikeluarkan lebih dulu
+    private final LinkedHashMap<Integer, Entry> entries;
+    private final FaceTensorKernel hashKernel = new FaceTensorKernel(HASH_WIDTH, HASH_HEIGHT);
+    private final byte[] hashPixels = new byte[HASH_WIDTH * HASH_HEIGHT];
+    private long hits = 0;
+    private long misses = 0;
+
+    public FaceResultCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MS, DEFAULT_MAX_HASH_DISTANCE);
+    }
+
+    public FaceResultCache(int maxEntries, long ttlMs, int maxHashDistance) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.maxHashDistance = maxHashDistance;
+        this.entries = new LinkedHashMap<Integer, Entry>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > FaceResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    // dHash: perkecil ROI luma ke 9x8 (area) lalu bandingkan piksel bertetangga per baris (64 bit).
+    // Hash dihitung dalam orientasi sensor; cukup karena hanya dibandingkan dengan frame berikutnya.
+    synchronized long computeHash(LumaPlane luma, int left, int top, int width, int height) {
+        hashKernel.resizeToBytes(luma.buffer, luma.rowStride, luma.pixelStride,
+                left, top, width, height, 0, hashPixels);
+        long hash = 0;
+        int bit = 0;
+        for (int row = 0; row < HASH_HEIGHT; row++) {
+            int offset = row * HASH_WIDTH;
+            for (int col = 0; col < HASH_WIDTH - 1; col++) {
+                if ((hashPixels[offset + col] & 0xFF) > (hashPixels[offset + col + 1] & 0xFF)) {
+                    hash |= 1L << bit;
+                }
+                bit++;
+            }
+        }
+        return hash;
+    }
+
+    // Salin hasil tersimpan ke out jika wajah masih sama; mengembalikan false jika perlu inferensi
+    public synchronized boolean lookup(Integer trackingId, long hash, EmotionScores out) {
+        if (trackingId == null) {
+            return false;
+        }
+        Entry entry = entries.get(trackingId);
+        if (entry != null
+                && SystemClock.elapsedRealtime() - entry.timestampMs <= ttlMs
+                && Long.bitCount(entry.hash ^ hash) <= maxHashDistance) {
+            out.copyFrom(entry.scores);
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    public synchronized void put(Integer trackingId, long hash, EmotionScores scores) {
+        if (trackingId == null || !scores.isValid()) {
+            return;
+        }
+        Entry entry = entries.get(trackingId);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(trackingId, entry);
+        }
+        entry.hash = hash;
+        entry.timestampMs = SystemClock.elapsedRealtime();
+        entry.scores.copyFrom(scores);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, entries.size());
+    }
+
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+    }
+
+    private static final class Entry {
+        final EmotionScores scores = new EmotionScores();
+        long hash;
+        long timestampMs;
+    }
+
+    public static class CacheStats {
+        public final long hits;
+        public final long misses;
+        public final int size;
+        public final double hitRate;
+
+        public CacheStats(long hits, long misses, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.size = size;
+            long lookups = hits + misses;
+            this.hitRate = lookups > 0 ? (double) hits / lookups : 0;
+        }
+
+        public double getMissRate() {
+            return hits + misses > 0 ? 1.0 - hitRate : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "CacheStats{hits=%d, misses=%d, hitRate=%.1f%%, size=%d}",
+                    hits, misses, hitRate * 100, size);
+        }
+    }
+}
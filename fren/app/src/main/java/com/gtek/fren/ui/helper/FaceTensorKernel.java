@@ -0,0 +1,250 @@
+package com.gtek.fren.ui.helper;
+
+import java.nio.ByteBuffer;
+
+// Kernel preprocessing satu langkah: potong ROI dari buffer luma 8-bit, perkecil dengan
+// interpolasi area (sama dengan Imgproc.INTER_AREA), lalu normalisasi atau kuantisasi dan
+// tulis langsung ke buffer tujuan (buffer input model). Rotasi frame diterapkan sekalian saat
+// menulis output, sehingga hanya 48x48 piksel yang diputar. Java murni tanpa OpenCV/Android,
+// sehingga bisa diuji dan di-benchmark di JVM. Tidak thread-safe: tabel bobot dan baris
+// scratch dipakai ulang antar panggilan.
+final class FaceTensorKernel {
+
+    // Encoding output
+    static final int OUTPUT_FLOAT32 = 0;
+    static final int OUTPUT_UINT8 = 1;
+    static final int OUTPUT_INT8 = 2;
+
+    private final int outWidth;
+    private final int outHeight;
+    private final AxisTable xTable;
+    private final AxisTable yTable;
+    private final float[] rowValues;
+    private final float[] values;
+    private final float[] rotated;
+    private byte[] rowScratch = new byte[0];
+
+    FaceTensorKernel(int outWidth, int outHeight) {
+        this.outWidth = outWidth;
+        this.outHeight = outHeight;
+        this.xTable = new AxisTable(outWidth);
+        this.yTable = new AxisTable(outHeight);
+        this.rowValues = new float[outWidth];
+        this.values = new float[outWidth * outHeight];
+        this.rotated = new float[outWidth * outHeight];
+    }
+
+    // Hasil area-resize dalam skala piksel 0-255 (float, belum dibulatkan), baris demi baris
+    float[] resize(ByteBuffer source, int rowStride, int pixelStride,
+                   int left, int top, int width, int height) {
+        // Sama seperti OpenCV: mode area murni hanya jika kedua sumbu diperkecil
+        boolean area = width >= outWidth && height >= outHeight;
+        xTable.build(width, area);
+        yTable.build(height, area);
+
+        int rowSpan = (width - 1) * pixelStride + 1;
+        if (rowScratch.length < rowSpan) {
+            rowScratch = new byte[rowSpan];
+        }
+        ByteBuffer view = source.duplicate();
+
+        for (int dy = 0; dy < outHeight; dy++) {
+            int outOffset = dy * outWidth;
+            for (int dx = 0; dx < outWidth; dx++) {
+                values[outOffset + dx] = 0f;
+            }
+            for (int ty = yTable.start[dy]; ty < yTable.start[dy + 1]; ty++) {
+                int sy = yTable.index[ty];
+                float wy = yTable.weight[ty];
+                view.position((top + sy) * rowStride + left * pixelStride);
+                view.get(rowScratch, 0, rowSpan);
+                resizeRow(pixelStride);
+                for (int dx = 0; dx < outWidth; dx++) {
+                    values[outOffset + dx] += wy * rowValues[dx];
+                }
+            }
+        }
+        return values;
+    }
+
+    // Seperti resize(), lalu putar hasilnya searah jarum jam sebesar rotationDegrees
+    // (0/90/180/270) agar tegak. ROI tetap dalam koordinat sensor.
+    float[] resizeUpright(ByteBuffer source, int rowStride, int pixelStride,
+                          int left, int top, int width, int height, int rotationDegrees) {
+        float[] result = resize(source, rowStride, pixelStride, left, top, width, height);
+        if (rotationDegrees == 0) {
+            return result;
+        }
+        if (outWidth != outHeight) {
+            throw new IllegalArgumentException("Rotation needs a square output");
+        }
+        int last = outWidth - 1;
+        for (int v = 0; v < outHeight; v++) {
+            for (int u = 0; u < outWidth; u++) {
+                // (u, v) tegak <- (x, y) sensor
+                int x;
+                int y;
+                switch (rotationDegrees) {
+                    case 90:
+                        x = v;
+                        y = last - u;
+                        break;
+                    case 180:
+                        x = last - u;
+                        y = last - v;
+                        break;
+                    case 270:
+                        x = last - v;
+                        y = u;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported rotation: " + rotationDegrees);
+                }
+                rotated[v * outWidth + u] = result[y * outWidth + x];
+            }
+        }
+        return rotated;
+    }
+
+    // Resize lalu tulis ke target mulai dari posisi absolut offset (byte).
+    // Nilai ditulis sebagai v * valueScale + valueOffset, dengan v dalam skala 0-255:
+    // float32 memakai valueScale 1/255, model terkuantisasi 1/(255*scale) dan zeroPoint.
+    void resizeInto(ByteBuffer source, int rowStride, int pixelStride,
+                    int left, int top, int width, int height, int rotationDegrees,
+                    ByteBuffer target, int offset, int encoding, float valueScale, float valueOffset) {
+        float[] result = resizeUpright(source, rowStride, pixelStride, left, top, width, height, rotationDegrees);
+        int count = outWidth * outHeight;
+        switch (encoding) {
+            case OUTPUT_FLOAT32:
+                for (int i = 0; i < count; i++) {
+                    target.putFloat(offset + i * 4, result[i] * valueScale + valueOffset);
+                }
+                break;
+            case OUTPUT_UINT8:
+                for (int i = 0; i < count; i++) {
+                    target.put(offset + i, (byte) clamp(Math.round(result[i] * valueScale + valueOffset), 0, 255));
+                }
+                break;
+            case OUTPUT_INT8:
+                for (int i = 0; i < count; i++) {
+                    target.put(offset + i, (byte) clamp(Math.round(result[i] * valueScale + valueOffset), -128, 127));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown output encoding: " + encoding);
+        }
+    }
+
+    // Resize ke byte 8-bit (dibulatkan), mis. untuk Mat 8UC1 atau hash perseptual
+    void resizeToBytes(ByteBuffer source, int rowStride, int pixelStride,
+                       int left, int top, int width, int height, int rotationDegrees, byte[] target) {
+        float[] result = resizeUpright(source, rowStride, pixelStride, left, top, width, height, rotationDegrees);
+        for (int i = 0; i < outWidth * outHeight; i++) {
+            target[i] = (byte) clamp(Math.round(result[i]), 0, 255);
+        }
+    }
+
+    private void resizeRow(int pixelStride) {
+        for (int dx = 0; dx < outWidth; dx++) {
+            float sum = 0f;
+            for (int tx = xTable.start[dx]; tx < xTable.start[dx + 1]; tx++) {
+                sum += xTable.weight[tx] * (rowScratch[xTable.index[tx] * pixelStride] & 0xFF);
+            }
+            rowValues[dx] = sum;
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+
+    // Bobot interpolasi per sumbu: untuk tujuan d, tap start[d]..start[d+1]-1 berisi
+    // (index sumber, bobot). Rumus mengikuti computeResizeAreaTab dan mode area linear OpenCV.
+    private static final class AxisTable {
+        final int outSize;
+        final int[] start;
+        int[] index = new int[0];
+        float[] weight = new float[0];
+        private int builtSize = -1;
+        private boolean builtArea;
+
+        AxisTable(int outSize) {
+            this.outSize = outSize;
+            this.start = new int[outSize + 1];
+        }
+
+        void build(int srcSize, boolean area) {
+            if (srcSize == builtSize && area == builtArea) {
+                return;
+            }
+            double scale = (double) srcSize / outSize;
+            // Paling banyak ceil(scale) + 1 tap per piksel tujuan
+            int capacity = outSize * ((int) Math.ceil(scale) + 2);
+            if (index.length < capacity) {
+                index = new int[capacity];
+                weight = new float[capacity];
+            }
+
+            int taps = 0;
+            for (int d = 0; d < outSize; d++) {
+                start[d] = taps;
+                if (area) {
+                    taps = addAreaTaps(d, srcSize, scale, taps);
+                } else {
+                    taps = addLinearTaps(d, srcSize, scale, taps);
+                }
+            }
+            start[outSize] = taps;
+            builtSize = srcSize;
+            builtArea = area;
+        }
+
+        // Rata-rata berbobot cakupan sel [d*scale, (d+1)*scale)
+        private int addAreaTaps(int d, int srcSize, double scale, int taps) {
+            double fs1 = d * scale;
+            double fs2 = fs1 + scale;
+            double cellWidth = Math.min(scale, srcSize - fs1);
+            int s1 = (int) Math.ceil(fs1);
+            int s2 = (int) Math.floor(fs2);
+            s2 = Math.min(s2, srcSize - 1);
+            s1 = Math.min(s1, s2);
+
+            if (s1 - fs1 > 1e-3) {
+                taps = addTap(taps, s1 - 1, (s1 - fs1) / cellWidth);
+            }
+            for (int s = s1; s < s2; s++) {
+                taps = addTap(taps, s, 1.0 / cellWidth);
+            }
+            if (fs2 - s2 > 1e-3) {
+                taps = addTap(taps, s2, Math.min(Math.min(fs2 - s2, 1.0), cellWidth) / cellWidth);
+            }
+            return taps;
+        }
+
+        // INTER_AREA saat memperbesar: interpolasi linear dengan koefisien khusus mode area
+        private int addLinearTaps(int d, int srcSize, double scale, int taps) {
+            int s = (int) Math.floor(d * scale);
+            double f = (d + 1) - (s + 1) / scale;
+            f = f <= 0 ? 0 : f - Math.floor(f);
+            if (s < 0) {
+                s = 0;
+                f = 0;
+            }
+            if (s >= srcSize - 1) {
+                s = srcSize - 1;
+                f = 0;
+            }
+            taps = addTap(taps, s, 1.0 - f);
+            if (f > 0) {
+                taps = addTap(taps, s + 1, f);
+            }
+            return taps;
+        }
+
+        private int addTap(int taps, int sourceIndex, double tapWeight) {
+            index[taps] = sourceIndex;
+            weight[taps] = (float) tapWeight;
+            return taps + 1;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.gtek.fren.ui.helper;
+
+import android.graphics.Rect;
+
+import com.google.mlkit.vision.face.Face;
+
+import java.util.List;
+import java.util.Locale;
+
+// Menentukan per tracking ID kapan wajah perlu diklasifikasi ulang. Urgensi naik seiring
+// waktu sejak inferensi terakhir, lebih cepat untuk wajah besar dan hasil yang ragu, dan
+// langsung tinggi jika bounding box bergeser jauh. Di antara inferensi, distribusi yang
+// dihaluskan (EMA) yang dipublikasikan. Semua state disimpan di array primitif per slot.
+public class FaceTrackScheduler {
+
+    public static final int MAX_TRACKS = 16;
+    public static final int DEFAULT_MAX_INFERENCES_PER_CYCLE = 4;
+    public static final float DEFAULT_SMOOTHING = 0.5f;
+
+    // Wajah yakin dan diam diklasifikasi ulang kira-kira setiap interval ini
+    private static final long BASE_INTERVAL_MS = 300;
+    // Batas atas: setiap track diperbarui paling tidak sesering ini
+    private static final long MAX_INTERVAL_MS = 1500;
+    private static final long TRACK_EXPIRY_MS = 2000;
+    // Wajah dengan sisi sebesar ini (px) atau lebih mendapat bobot ukuran penuh
+    private static final float REFERENCE_FACE_SIZE = 200f;
+    // Pergeseran pusat (relatif terhadap ukuran wajah) yang langsung memicu inferensi
+    private static final float MOTION_THRESHOLD = 0.25f;
+    private static final float UNKNOWN_URGENCY = Float.MAX_VALUE;
+
+    private static final int NUM = EmotionClassifier.NUM_EMOTIONS;
+
+    private final boolean[] occupied = new boolean[MAX_TRACKS];
+    private final int[] trackIds = new int[MAX_TRACKS];
+    private final long[] lastInferenceMs = new long[MAX_TRACKS];
+    private final long[] lastSeenMs = new long[MAX_TRACKS];
+    // Posisi dan ukuran saat inferensi terakhir, untuk mengukur gerakan
+    private final float[] centerX = new float[MAX_TRACKS];
+    private final float[] centerY = new float[MAX_TRACKS];
+    private final float[] faceSize = new float[MAX_TRACKS];
+    // Top-1 inferensi terakhir (0-1)
+    private final float[] confidence = new float[MAX_TRACKS];
+    // Distribusi EMA (persen), NUM nilai per slot
+    private final float[] smoothed = new float[MAX_TRACKS * NUM];
+    private float[] urgencies = new float[MAX_TRACKS];
+
+    private float smoothing = DEFAULT_SMOOTHING;
+    private int maxInferencesPerCycle = DEFAULT_MAX_INFERENCES_PER_CYCLE;
+    private long scheduled = 0;
+    private long skipped = 0;
+
+    // alpha 0-1: bobot hasil baru; makin kecil makin halus tetapi makin lambat bereaksi
+    public synchronized void setSmoothing(float alpha) {
+        if (alpha <= 0f || alpha > 1f) {
+            throw new IllegalArgumentException("Smoothing must be in (0, 1]");
+        }
+        smoothing = alpha;
+    }
+
+    public synchronized void setMaxInferencesPerCycle(int maxInferences) {
+        if (maxInferences < 1) {
+            throw new IllegalArgumentException("At least one inference per cycle is required");
+        }
+        maxInferencesPerCycle = maxInferences;
+    }
+
+    // Tandai due[i] untuk wajah yang perlu inferensi siklus ini, paling banyak
+    // maxInferencesPerCycle dengan urgensi tertinggi. Mengembalikan jumlah yang ditandai.
+    public synchronized int selectDue(List<Face> faces, long nowMs, boolean[] due) {
+        expireTracks(nowMs);
+        int count = faces.size();
+        if (urgencies.length < count) {
+            urgencies = new float[count];
+        }
+        for (int i = 0; i < count; i++) {
+            due[i] = false;
+            Face face = faces.get(i);
+            int slot = findSlot(face.getTrackingId());
+            if (slot < 0) {
+                // Track baru atau tanpa tracking ID: belum ada hasil untuk dipublikasikan
+                urgencies[i] = UNKNOWN_URGENCY;
+            } else {
+                lastSeenMs[slot] = nowMs;
+                urgencies[i] = urgency(slot, face.getBoundingBox(), nowMs);
+            }
+        }
+
+        // Pilih berulang yang paling mendesak; N kecil sehingga tanpa sort
+        int selected = 0;
+        while (selected < maxInferencesPerCycle) {
+            int best = -1;
+            for (int i = 0; i < count; i++) {
+                if (!due[i] && urgencies[i] >= 1f && (best < 0 || urgencies[i] > urgencies[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            due[best] = true;
+            selected++;
+        }
+        scheduled += selected;
+        skipped += count - selected;
+        return selected;
+    }
+
+    // Catat hasil inferensi baru dan perbarui distribusi EMA untuk track ini
+    public synchronized void update(Integer trackingId, Rect box, EmotionScores scores, long nowMs) {
+        if (trackingId == null || !scores.isValid()) {
+            return;
+        }
+        int slot = findSlot(trackingId);
+        boolean fresh = slot < 0;
+        if (fresh) {
+            slot = allocateSlot(trackingId);
+        }
+
+        int offset = slot * NUM;
+        float alpha = fresh ? 1f : smoothing;
+        for (int i = 0; i < NUM; i++) {
+            smoothed[offset + i] = alpha * scores.getProbability(i) + (1f - alpha) * smoothed[offset + i];
+        }
+        lastInferenceMs[slot] = nowMs;
+        lastSeenMs[slot] = nowMs;
+        centerX[slot] = box.exactCenterX();
+        centerY[slot] = box.exactCenterY();
+        faceSize[slot] = Math.max(box.width(), box.height());
+        confidence[slot] = scores.getTopConfidence() / 100f;
+    }
+
+    // Tulis distribusi yang dihaluskan ke out; false jika track belum punya hasil
+    public synchronized boolean publish(Integer trackingId, EmotionScores out) {
+        int slot = findSlot(trackingId);
+        if (slot < 0) {
+            return false;
+        }
+        out.setFromProbabilities(smoothed, slot * NUM);
+        return true;
+    }
+
+    public synchronized void clear() {
+        for (int slot = 0; slot < MAX_TRACKS; slot++) {
+            occupied[slot] = false;
+        }
+    }
+
+    public synchronized SchedulerStats getStats() {
+        int activeTracks = 0;
+        for (int slot = 0; slot < MAX_TRACKS; slot++) {
+            if (occupied[slot]) {
+                activeTracks++;
+            }
+        }
+        return new SchedulerStats(scheduled, skipped, activeTracks);
+    }
+
+    // >= 1 berarti perlu inferensi
+    private float urgency(int slot, Rect box, long nowMs) {
+        long elapsed = nowMs - lastInferenceMs[slot];
+        if (elapsed >= MAX_INTERVAL_MS) {
+            return 1f + elapsed / (float) BASE_INTERVAL_MS;
+        }
+
+        float size = Math.max(box.width(), box.height());
+        // Wajah kecil memuat sedikit detail; diperbarui lebih jarang
+        float sizeWeight = 0.5f + 0.5f * Math.min(1f, size / REFERENCE_FACE_SIZE);
+        // Hasil yang ragu dijadwalkan lebih cepat (1.5x) daripada yang sangat yakin (0.5x)
+        float confidenceWeight = 1.5f - confidence[slot];
+
+        float dx = box.exactCenterX() - centerX[slot];
+        float dy = box.exactCenterY() - centerY[slot];
+        float motion = (float) Math.sqrt(dx * dx + dy * dy) / Math.max(1f, faceSize[slot]);
+
+        return (elapsed / (float) BASE_INTERVAL_MS) * sizeWeight * confidenceWeight
+                + motion / MOTION_THRESHOLD;
+    }
+
+    private int findSlot(Integer trackingId) {
+        if (trackingId == null) {
+            return -1;
+        }
+        int id = trackingId;
+        for (int slot = 0; slot < MAX_TRACKS; slot++) {
+            if (occupied[slot] && trackIds[slot] == id) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Slot kosong, atau slot yang paling lama tidak terlihat jika penuh
+    private int allocateSlot(int trackingId) {
+        int target = -1;
+        for (int slot = 0; slot < MAX_TRACKS; slot++) {
+            if (!occupied[slot]) {
+                target = slot;
+                break;
+            }
+            if (target < 0 || lastSeenMs[slot] < lastSeenMs[target]) {
+                target = slot;
+            }
+        }
+        occupied[target] = true;
+        trackIds[target] = trackingId;
+        return target;
+    }
+
+    private void expireTracks(long nowMs) {
+        for (int slot = 0; slot < MAX_TRACKS; slot++) {
+            if (occupied[slot] && nowMs - lastSeenMs[slot] > TRACK_EXPIRY_MS) {
+                occupied[slot] = false;
+            }
+        }
+    }
+
+    public static class SchedulerStats {
+        public final long scheduled;
+        public final long skipped;
+        public final int activeTracks;
+
+        public SchedulerStats(long scheduled, long skipped, int activeTracks) {
+            this.scheduled = scheduled;
+            this.skipped = skipped;
+            this.activeTracks = activeTracks;
+        }
+
+        // Fraksi wajah per siklus yang benar-benar diklasifikasi
+        public double getInferenceRatio() {
+            long total = scheduled + skipped;
+            return total > 0 ? (double) scheduled / total : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "SchedulerStats{scheduled=%d, skipped=%d, ratio=%.2f, tracks=%d}",
+                    scheduled, skipped, getInferenceRatio(), activeTracks);
+        }
+    }
+}
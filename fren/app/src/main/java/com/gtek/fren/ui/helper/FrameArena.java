@@ -0,0 +1,166 @@
+package com.gtek.fren.ui.helper;
+
+import android.graphics.Rect;
+import android.util.Log;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Arena per frame untuk jalur kamera live. Setiap frame meminjam satu Frame berisi array
+// dan Mat yang sudah berukuran tepat, lalu mengembalikannya sekaligus lewat close() saat
+// frame selesai. Buffer yang bergantung pada resolusi dibuat ulang hanya jika geometri
+// frame berubah, sehingga sesi live yang panjang tidak terus mengalokasikan heap/native.
+final class FrameArena {
+
+    private static final String TAG = "FrameArena";
+    // Pipeline dua tahap: satu frame diklasifikasi, satu menunggu, satu sedang diisi tahap deteksi
+    private static final int MAX_FREE_FRAMES = 3;
+
+    private final ArrayDeque<Frame> freeFrames = new ArrayDeque<>(MAX_FREE_FRAMES);
+    private int width = -1;
+    private int height = -1;
+    private boolean released = false;
+
+    // null setelah release(): pipeline sedang dihentikan, frame tidak boleh diproses lagi
+    synchronized Frame acquire(int frameWidth, int frameHeight) {
+        if (released) {
+            return null;
+        }
+        if (frameWidth != width || frameHeight != height) {
+            if (width > 0) {
+                Log.d(TAG, "Frame geometry changed " + width + "x" + height
+                        + " -> " + frameWidth + "x" + frameHeight + ", resizing arena");
+            }
+            releaseFreeFrames();
+            width = frameWidth;
+            height = frameHeight;
+        }
+        Frame frame = freeFrames.poll();
+        if (frame == null) {
+            frame = new Frame(this, frameWidth, frameHeight);
+        }
+        return frame;
+    }
+
+    // Frame dengan geometri lama (atau saat arena sudah dilepas) langsung dibebaskan
+    private synchronized void recycle(Frame frame) {
+        if (!released && frame.width == width && frame.height == height
+                && freeFrames.size() < MAX_FREE_FRAMES) {
+            freeFrames.push(frame);
+        } else {
+            frame.release();
+        }
+    }
+
+    synchronized void release() {
+        released = true;
+        releaseFreeFrames();
+    }
+
+    private void releaseFreeFrames() {
+        Frame frame;
+        while ((frame = freeFrames.poll()) != null) {
+            frame.release();
+        }
+    }
+
+    // Scratch untuk satu frame. Tidak thread-safe: boleh berpindah thread antar tahap pipeline,
+    // tetapi hanya dipakai satu thread pada satu waktu sampai close().
+    static final class Frame implements AutoCloseable {
+
+        private static final int FACE_SIZE = InferenceSession.INPUT_SIZE;
+
+        private final FrameArena arena;
+        final int width;
+        final int height;
+        // Salinan plane Y yang rapat (rowStride = width), dibuat saat frame harus hidup
+        // lebih lama dari ImageProxy-nya
+        private ByteBuffer luma;
+
+        // Per wajah: hash, status jadwal/cache, dan ROI (left, top, width, height)
+        long[] hashes = new long[0];
+        boolean[] due = new boolean[0];
+        boolean[] cached = new boolean[0];
+        int[] regions = new int[0];
+        // ROI wajah yang sedang diproses: koordinat tegak yang sudah dipotong, dan koordinat sensor
+        final Rect uprightRoi = new Rect();
+        final Rect sensorRoi = new Rect();
+        // Wajah 48x48 8-bit untuk mode ensemble/cascade yang bekerja dengan Mat
+        final FaceTensorKernel faceKernel = new FaceTensorKernel(FACE_SIZE, FACE_SIZE);
+        final byte[] facePixels = new byte[FACE_SIZE * FACE_SIZE];
+        private final List<Mat> faceMats = new ArrayList<>();
+        // Daftar wajah untuk satu pemanggilan ensemble/cascade, dikosongkan setiap frame
+        final List<Mat> faceBatch = new ArrayList<>();
+
+        private Frame(FrameArena arena, int width, int height) {
+            this.arena = arena;
+            this.width = width;
+            this.height = height;
+        }
+
+        // Pastikan array per wajah cukup untuk faceCount wajah
+        void ensureFaces(int faceCount) {
+            if (hashes.length < faceCount) {
+                hashes = new long[faceCount];
+                due = new boolean[faceCount];
+                cached = new boolean[faceCount];
+                regions = new int[faceCount * 4];
+            }
+        }
+
+        // Mat 48x48 CV_8UC1 ke-index, dibuat sekali lalu dipakai ulang
+        Mat faceMat(int index) {
+            while (faceMats.size() <= index) {
+                faceMats.add(new Mat(FACE_SIZE, FACE_SIZE, CvType.CV_8UC1));
+            }
+            return faceMats.get(index);
+        }
+
+        // Salin plane Y ke buffer milik frame; hasilnya tetap valid setelah ImageProxy ditutup
+        LumaPlane copyLuma(LumaPlane source) {
+            if (luma == null) {
+                luma = ByteBuffer.allocateDirect(width * height);
+            }
+            ByteBuffer view = source.buffer.duplicate();
+            if (source.pixelStride == 1) {
+                // Salin per baris agar padding rowStride terlewati
+                for (int y = 0; y < height; y++) {
+                    int rowStart = y * source.rowStride;
+                    view.limit(rowStart + width);
+                    view.position(rowStart);
+                    luma.position(y * width);
+                    luma.put(view);
+                }
+            } else {
+                for (int y = 0; y < height; y++) {
+                    int rowStart = y * source.rowStride;
+                    for (int x = 0; x < width; x++) {
+                        luma.put(y * width + x, view.get(rowStart + x * source.pixelStride));
+                    }
+                }
+            }
+            luma.clear();
+            return new LumaPlane(luma, width, height, width, 1, source.rotationDegrees);
+        }
+
+        // Kembalikan semua buffer frame ini ke arena
+        @Override
+        public void close() {
+            arena.recycle(this);
+        }
+
+        private void release() {
+            faceBatch.clear();
+            for (Mat mat : faceMats) {
+                mat.release();
+            }
+            faceMats.clear();
+            luma = null;
+        }
+    }
+}
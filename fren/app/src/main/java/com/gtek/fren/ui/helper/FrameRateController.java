@@ -0,0 +1,208 @@
+package com.gtek.fren.ui.helper;
+
+import java.util.Locale;
+
+// Mengatur laju analisis mode live berdasarkan latensi yang terukur. Latensi per tahap
+// (deteksi, preprocessing, inferensi) dan end-to-end disimpan dalam jendela geser; setiap
+// beberapa frame laju disesuaikan menuju target FPS, dibatasi anggaran CPU (fraksi waktu
+// pipeline boleh sibuk), dan diturunkan jika latensi end-to-end melewati anggaran.
+public class FrameRateController {
+
+    public static final float DEFAULT_TARGET_FPS = 15f;
+    public static final float DEFAULT_CPU_BUDGET = 0.5f;
+    public static final long DEFAULT_LATENCY_BUDGET_MS = 250;
+
+    public static final int STAGE_DETECT = 0;
+    public static final int STAGE_PREPROCESS = 1;
+    public static final int STAGE_INFER = 2;
+    // Dari frame masuk sampai hasil dipublikasikan, termasuk antrean
+    public static final int STAGE_TOTAL = 3;
+    private static final int NUM_STAGES = 4;
+
+    private static final float MIN_FPS = 1f;
+    private static final int WINDOW = 15;
+    private static final int ADJUST_INTERVAL_FRAMES = 5;
+    // Penurunan saat latensi melewati anggaran, dan kenaikan per penyesuaian
+    private static final float BACKOFF_FACTOR = 0.75f;
+    private static final float RAMP_UP_FPS = 1f;
+    // Frame boleh diterima sedikit lebih awal agar jitter kamera tidak membuang frame
+    private static final float ACCEPT_SLACK = 0.25f;
+
+    private final long[] samples = new long[WINDOW * NUM_STAGES];
+    private final long[] sums = new long[NUM_STAGES];
+    private int sampleCount = 0;
+    private int nextSample = 0;
+    private int framesSinceAdjust = 0;
+
+    private float targetFps = DEFAULT_TARGET_FPS;
+    private float cpuBudget = DEFAULT_CPU_BUDGET;
+    private long latencyBudgetNanos = DEFAULT_LATENCY_BUDGET_MS * 1_000_000L;
+    private float currentFps = DEFAULT_TARGET_FPS;
+    private long nextDueNanos = Long.MIN_VALUE;
+    private String lastReason = "initial target";
+    private long adjustments = 0;
+
+    public synchronized void setTargetFps(float fps) {
+        if (fps < MIN_FPS) {
+            throw new IllegalArgumentException("Target FPS must be at least " + MIN_FPS);
+        }
+        targetFps = fps;
+        currentFps = Math.min(currentFps, fps);
+    }
+
+    // Fraksi 0-1 dari waktu dinding yang boleh dipakai pipeline (deteksi + preprocessing + inferensi)
+    public synchronized void setCpuBudget(float budget) {
+        if (budget <= 0f || budget > 1f) {
+            throw new IllegalArgumentException("CPU budget must be in (0, 1]");
+        }
+        cpuBudget = budget;
+    }
+
+    public synchronized void setLatencyBudgetMs(long budgetMs) {
+        if (budgetMs <= 0) {
+            throw new IllegalArgumentException("Latency budget must be positive");
+        }
+        latencyBudgetNanos = budgetMs * 1_000_000L;
+    }
+
+    // Apakah frame yang masuk pada nowNanos dianalisis dengan laju saat ini
+    public synchronized boolean acceptFrame(long nowNanos) {
+        long interval = (long) (1_000_000_000L / currentFps);
+        if (nextDueNanos == Long.MIN_VALUE || nowNanos - nextDueNanos > interval) {
+            // Frame pertama atau setelah jeda panjang: jangan mengejar frame yang terlewat
+            nextDueNanos = nowNanos;
+        }
+        if (nowNanos < nextDueNanos - (long) (interval * ACCEPT_SLACK)) {
+            return false;
+        }
+        nextDueNanos += interval;
+        return true;
+    }
+
+    // Catat durasi tahap satu frame; true jika laju berubah (lihat getLastReason())
+    public synchronized boolean recordFrame(long detectNanos, long preprocessNanos, long inferNanos,
+                                            long totalNanos) {
+        int offset = nextSample * NUM_STAGES;
+        if (sampleCount == WINDOW) {
+            for (int stage = 0; stage < NUM_STAGES; stage++) {
+                sums[stage] -= samples[offset + stage];
+            }
+        } else {
+            sampleCount++;
+        }
+        samples[offset + STAGE_DETECT] = detectNanos;
+        samples[offset + STAGE_PREPROCESS] = preprocessNanos;
+        samples[offset + STAGE_INFER] = inferNanos;
+        samples[offset + STAGE_TOTAL] = totalNanos;
+        for (int stage = 0; stage < NUM_STAGES; stage++) {
+            sums[stage] += samples[offset + stage];
+        }
+        nextSample = (nextSample + 1) % WINDOW;
+
+        if (++framesSinceAdjust < ADJUST_INTERVAL_FRAMES) {
+            return false;
+        }
+        framesSinceAdjust = 0;
+        return adjust();
+    }
+
+    private boolean adjust() {
+        double totalNanos = getAverageNanos(STAGE_TOTAL);
+        double workNanos = getAverageNanos(STAGE_DETECT) + getAverageNanos(STAGE_PREPROCESS)
+                + getAverageNanos(STAGE_INFER);
+        // Laju tertinggi yang masih dalam anggaran CPU
+        float cpuLimitedFps = workNanos > 0 ? (float) (cpuBudget * 1_000_000_000.0 / workNanos) : targetFps;
+        float ceiling = Math.max(MIN_FPS, Math.min(targetFps, cpuLimitedFps));
+
+        float newFps;
+        String reason;
+        if (totalNanos > latencyBudgetNanos) {
+            newFps = Math.min(currentFps * BACKOFF_FACTOR, ceiling);
+            reason = String.format(Locale.US, "back off: latency %.0f ms > budget %d ms",
+                    totalNanos / 1_000_000.0, latencyBudgetNanos / 1_000_000L);
+        } else if (ceiling < currentFps) {
+            newFps = ceiling;
+            reason = cpuLimitedFps < targetFps
+                    ? String.format(Locale.US, "cpu budget %.0f%%: work %.1f ms/frame",
+                            cpuBudget * 100, workNanos / 1_000_000.0)
+                    : String.format(Locale.US, "target %.1f fps", targetFps);
+        } else if (ceiling > currentFps) {
+            newFps = Math.min(currentFps + RAMP_UP_FPS, ceiling);
+            reason = String.format(Locale.US, "ramp up toward %.1f fps", ceiling);
+        } else {
+            return false;
+        }
+
+        newFps = Math.max(MIN_FPS, newFps);
+        if (Math.abs(newFps - currentFps) < 0.01f) {
+            return false;
+        }
+        currentFps = newFps;
+        lastReason = reason;
+        adjustments++;
+        return true;
+    }
+
+    public synchronized float getCurrentFps() {
+        return currentFps;
+    }
+
+    public synchronized String getLastReason() {
+        return lastReason;
+    }
+
+    public synchronized RateStats getStats() {
+        return new RateStats(currentFps, targetFps, lastReason, adjustments,
+                getAverageNanos(STAGE_DETECT) / 1_000_000.0,
+                getAverageNanos(STAGE_PREPROCESS) / 1_000_000.0,
+                getAverageNanos(STAGE_INFER) / 1_000_000.0,
+                getAverageNanos(STAGE_TOTAL) / 1_000_000.0);
+    }
+
+    public synchronized void reset() {
+        sampleCount = 0;
+        nextSample = 0;
+        framesSinceAdjust = 0;
+        for (int stage = 0; stage < NUM_STAGES; stage++) {
+            sums[stage] = 0;
+        }
+        currentFps = targetFps;
+        nextDueNanos = Long.MIN_VALUE;
+        lastReason = "initial target";
+        adjustments = 0;
+    }
+
+    private double getAverageNanos(int stage) {
+        return sampleCount > 0 ? (double) sums[stage] / sampleCount : 0;
+    }
+
+    public static class RateStats {
+        public final float currentFps;
+        public final float targetFps;
+        public final String reason;
+        public final long adjustments;
+        // Rata-rata jendela geser per tahap (ms)
+        public final double detectMs;
+        public final double preprocessMs;
+        public final double inferMs;
+        public final double totalMs;
+
+        public RateStats(float currentFps, float targetFps, String reason, long adjustments,
+                         double detectMs, double preprocessMs, double inferMs, double totalMs) {
+            this.currentFps = currentFps;
+            this.targetFps = targetFps;
+            this.reason = reason;
+            this.adjustments = adjustments;
+            this.detectMs = detectMs;
+            this.preprocessMs = preprocessMs;
+            this.inferMs = inferMs;
+            this.totalMs = totalMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "RateStats{fps=%.1f/%.1f, reason='%s', detect=%.1fms, preprocess=%.1fms, infer=%.1fms, total=%.1fms}",
+                    currentFps, targetFps, reason, detectMs, preprocessMs, inferMs, totalMs);
+        }
+    }
+}
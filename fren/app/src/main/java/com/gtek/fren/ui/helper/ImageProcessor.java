@@ -1,14 +1,9 @@
 package com.gtek.fren.ui.helper;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.media.Image;
+import android.os.SystemClock;
 import android.util.Log;
-import android.widget.ImageView;
 
 import androidx.annotation.OptIn;
 import androidx.camera.core.ExperimentalGetImage;
@@ -21,59 +16,69 @@ import com.google.mlkit.vision.face.FaceDetection;
 import com.google.mlkit.vision.face.FaceDetector;
 import com.google.mlkit.vision.face.FaceDetectorOptions;
 
-import org.opencv.core.Core;
-import org.opencv.core.CvType;
-import org.opencv.core.Mat;
-import org.opencv.core.Scalar;
-import org.opencv.core.Size;
-import org.opencv.imgproc.Imgproc;
-
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 @OptIn(markerClass = ExperimentalGetImage.class)
 public class ImageProcessor {
 
     private static final String TAG = "ImageProcessor";
     private static final float EMOTION_CONFIDENCE_THRESHOLD = 0.3f;
-    private final ExecutorService executorService;
+    // Semua pekerjaan setelah deteksi berjalan di sini, bukan di main thread
+    private final ExecutorService inferenceExecutor;
     private final EmotionClassifier emotionClassifier;
     private final MutableLiveData<List<EmotionClassifier.EmotionResult>> emotionResults;
     private final MutableLiveData<String> processingError;
     private boolean isDetecting = true;
     private final Object lock = new Object();
-    private boolean isProcessing = false;
-    private FaceDetector faceDetector;
-
-    private Paint facePaint;
-    private final ImageView overlayView;
-    private static final long CLASSIFICATION_INTERVAL_MS = 500; // Jeda 500ms antar klasifikasi
-    private long lastProcessingTime = 0;
+    private volatile FaceDetector faceDetector;
+    // Pipeline dua tahap: deteksi frame N+1 berjalan selagi frame N diklasifikasi.
+    // Tiap tahap punya satu slot tunggu; frame yang lebih baru menggantikan yang menunggu.
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+    private final LatestFrameMailbox<PendingFrame> mailbox = new LatestFrameMailbox<>();
+    private final LatestFrameMailbox<DetectedFrame> classifyMailbox = new LatestFrameMailbox<>();
+    // Nomor frame; ditulis hanya oleh pemegang claim tahap deteksi
+    private long frameSequence = 0;
+    // Hanya disentuh di executor inferensi
+    private long lastClassifiedSequence = 0;
+
+    // Overlay digambar di onDraw dari array yang dipakai ulang, tanpa Bitmap per frame
+    private final FaceOverlayView overlayView;
     private final EmotionBenchmark benchmark;
-
-    public ImageProcessor(ExecutorService executorService,
+    private final List<EmotionScores> faceScores = new ArrayList<>();
+    // Hasil per tracking ID; wajah statis tidak diklasifikasi ulang setiap siklus
+    private final FaceResultCache resultCache = new FaceResultCache();
+    // Menentukan wajah mana yang diklasifikasi ulang siklus ini; sisanya memakai hasil EMA
+    private final FaceTrackScheduler scheduler = new FaceTrackScheduler();
+    private final List<EmotionScores> pendingScores = new ArrayList<>();
+    // Scratch per frame (array per wajah, Mat) dipakai ulang antar frame
+    private final FrameArena frameArena = new FrameArena();
+    // FPS, latensi dan frame yang dibuang untuk tampilan mode live
+    private final LiveFrameStats liveStats = new LiveFrameStats();
+    // Laju analisis adaptif berdasarkan latensi per tahap (pengganti jeda tetap)
+    private final FrameRateController rateController = new FrameRateController();
+    // Durasi tahap frame terakhir; hanya disentuh di executor inferensi
+    private long preprocessNanos = 0;
+    private long inferNanos = 0;
+    // Preview kamera depan dicerminkan; overlay harus ikut dicerminkan
+    private boolean mirrorOverlay = false;
+
+    public ImageProcessor(ExecutorService inferenceExecutor,
                           EmotionClassifier emotionClassifier,
                           MutableLiveData<List<EmotionClassifier.EmotionResult>> emotionResults,
                           MutableLiveData<String> processingError,
-                          ImageView overlayView, EmotionBenchmark benchmark) {
-        this.executorService = executorService;
+                          FaceOverlayView overlayView, EmotionBenchmark benchmark) {
+        this.inferenceExecutor = inferenceExecutor;
         this.emotionClassifier = emotionClassifier;
         this.emotionResults = emotionResults;
         this.processingError = processingError;
         this.overlayView = overlayView;
-        this.benchmark = new EmotionBenchmark();
+        this.benchmark = benchmark != null ? benchmark : new EmotionBenchmark();
 
         initializeFaceDetector();
-        initializePaint();
-    }
-
-    private void initializePaint() {
-        facePaint = new Paint();
-        facePaint.setColor(Color.GREEN);
-        facePaint.setStyle(Paint.Style.STROKE);
-        facePaint.setStrokeWidth(3.0f);
     }
 
     private void initializeFaceDetector() {
@@ -93,245 +98,361 @@ public class ImageProcessor {
         this.isDetecting = isDetecting;
     }
 
+    public void setMirrorOverlay(boolean mirrorOverlay) {
+        this.mirrorOverlay = mirrorOverlay;
+    }
 
-    @OptIn(markerClass = ExperimentalGetImage.class)
+    public LiveFrameStats.Snapshot getLiveStats() {
+        return liveStats.getSnapshot();
+    }
+
+    // Target laju mode live, mis. 15 FPS; anggaran CPU dan latensi ikut membatasi
+    public void setTargetFps(float fps) {
+        rateController.setTargetFps(fps);
+    }
+
+    public void setCpuBudget(float budget) {
+        rateController.setCpuBudget(budget);
+    }
+
+    public FrameRateController.RateStats getRateStats() {
+        return rateController.getStats();
+    }
+
+
+    // Analyzer CameraX: frame hanya dititipkan ke mailbox lalu langsung kembali. Frame lama
+    // yang belum sempat diproses ditimpa dan ditutup, jadi CameraX tidak pernah tertahan.
     public void processImageWithFaceDetection(final ImageProxy imageProxy) {
         if (!isDetecting) {
             imageProxy.close();
             return;
         }
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastProcessingTime < CLASSIFICATION_INTERVAL_MS) {
+        long arrivedNanos = LiveFrameStats.now();
+        // Frame di luar laju yang diizinkan controller langsung dikembalikan ke CameraX
+        if (!rateController.acceptFrame(arrivedNanos)) {
             imageProxy.close();
             return;
         }
+        PendingFrame displaced = mailbox.offer(new PendingFrame(imageProxy, arrivedNanos));
+        if (displaced != null) {
+            liveStats.onFrameDropped();
+            displaced.imageProxy.close();
+        }
+        processNextFrame();
+    }
 
-        synchronized(lock) {
-            if (isProcessing) {
-                return;
-            }
-            isProcessing = true;
+    // Tahap 1 (deteksi): mulai frame terbaru jika detektor bebas; dipanggil oleh analyzer
+    // dan begitu deteksi frame sebelumnya selesai
+    private void processNextFrame() {
+        PendingFrame frame = mailbox.claim();
+        if (frame != null) {
+            detectFrame(frame.imageProxy, frame.arrivedNanos, ++frameSequence);
         }
+    }
+
+    private void finishDetection(ImageProxy imageProxy) {
+        imageProxy.close();
+        mailbox.finish();
+        processNextFrame();
+    }
 
+    @OptIn(markerClass = ExperimentalGetImage.class)
+    private void detectFrame(final ImageProxy imageProxy, final long arrivedNanos, final long sequence) {
         try {
+            FaceDetector detector = faceDetector;
+            if (detector == null) {
+                throw new IllegalStateException("Face detector already closed");
+            }
 
             Image mediaImage = imageProxy.getImage();
             if (mediaImage == null) {
                 throw new IllegalArgumentException("Received null mediaImage");
             }
 
-            InputImage inputImage = InputImage.fromMediaImage(mediaImage, imageProxy.getImageInfo().getRotationDegrees());
-
-
-            final int width = mediaImage.getWidth();
-            final int height = mediaImage.getHeight();
-            final Mat imageMat = imageToMat(mediaImage);
-
-            if (imageMat == null) {
-                throw new IllegalStateException("Failed to convert image to Mat");
-            }
-
-
-            faceDetector.process(inputImage)
-                    .addOnSuccessListener(faces -> {
-                        lastProcessingTime = System.currentTimeMillis();
-                        if (!faces.isEmpty()) {
-
-                            drawFacesOnOverlay(faces, width, height);
-                            List<EmotionClassifier.EmotionResult> allEmotions = new ArrayList<>();
-
-                            // Process each face and measure performance
-                            for (Face face : faces) {
-                                try {
-                                    List<EmotionClassifier.EmotionResult> faceEmotions = processSingleFace(face, imageMat);
-                                    if (faceEmotions != null && !faceEmotions.isEmpty()) {
-                                        allEmotions.addAll(faceEmotions);
-                                        // Record successful emotion detection
-                                    }
-                                } catch (Exception e) {
-                                    Log.e(TAG, "Error processing face", e);
-
+            int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
+            InputImage inputImage = InputImage.fromMediaImage(mediaImage, rotationDegrees);
+
+            // Wajah dipotong langsung dari plane Y; tidak ada konversi YUV->RGB seluruh frame.
+            // Buffer hanya valid sampai imageProxy ditutup, jadi disalin ke arena sebelum itu.
+            final LumaPlane luma = LumaPlane.of(mediaImage, rotationDegrees);
+
+            // Listener ringan langsung di thread callback ML Kit: salin plane Y, serahkan ke
+            // tahap klasifikasi, tutup imageProxy, lalu segera deteksi frame berikutnya
+            final long detectStart = LiveFrameStats.now();
+            detector.process(inputImage)
+                    .addOnCompleteListener(DIRECT_EXECUTOR, task -> {
+                        try {
+                            if (faceDetector == null) {
+                                // cleanup() sudah berjalan: hasil deteksi yang terlambat dibuang,
+                                // imageProxy tetap ditutup di finally
+                                return;
+                            }
+                            if (task.isSuccessful()) {
+                                long detectNanos = LiveFrameStats.now() - detectStart;
+                                DetectedFrame detected = DetectedFrame.capture(sequence, task.getResult(),
+                                        luma, frameArena, arrivedNanos, detectNanos);
+                                // null jika arena sudah dilepas oleh cleanup()
+                                if (detected != null) {
+                                    submitForClassification(detected);
                                 }
+                            } else {
+                                Exception e = task.getException();
+                                String errorMessage = "Face detection failed: "
+                                        + (e != null ? e.getMessage() : "cancelled");
+                                Log.e(TAG, errorMessage, e);
+                                processingError.postValue(errorMessage);
+                                clearOverlay();
                             }
-
-                            emotionResults.postValue(allEmotions);
-
-                        } else {
-                            clearOverlay();
-                            emotionResults.postValue(new ArrayList<>());
-                        }
-
-                    })
-                    .addOnFailureListener(e -> {
-                        String errorMessage = "Face detection failed: " + e.getMessage();
-                        Log.e(TAG, errorMessage, e);
-                        processingError.postValue(errorMessage);
-                        clearOverlay();
-                    })
-                    .addOnCompleteListener(task -> {
-                        if (!imageMat.empty()) {
-                            imageMat.release();
-                        }
-
-                        Log.d(TAG, "Complete process image");
-                        imageProxy.close();
-                        synchronized(lock) {
-                            isProcessing = false;
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error handing off detected frame", e);
+                        } finally {
+                            finishDetection(imageProxy);
                         }
                     });
 
         } catch (Exception e) {
             Log.e(TAG, "Error processing image", e);
             processingError.postValue("Error processing image: " + e.getMessage());
-            imageProxy.close();
-            synchronized(lock) {
-                isProcessing = false;
-            }
+            finishDetection(imageProxy);
         }
     }
 
+    // Tahap 2 (klasifikasi): paling banyak satu frame terdeteksi menunggu. Jika klasifikasi
+    // tertinggal, frame yang menunggu diganti yang lebih baru, bukan diantrekan.
+    private void submitForClassification(DetectedFrame detected) {
+        DetectedFrame displaced = classifyMailbox.offer(detected);
+        if (displaced != null) {
+            liveStats.onFrameDropped();
+            displaced.release();
+        }
+        processNextDetected();
+    }
 
-    private void drawFacesOnOverlay(List<Face> faces, int imageWidth, int imageHeight) {
-        if (overlayView == null) return;
-
-        // Pastikan overlayView memiliki dimensi valid
-        if (overlayView.getWidth() <= 0 || overlayView.getHeight() <= 0) {
-            Log.w(TAG, "OverlayView dimensions not ready yet");
-            // Tunggu sampai view siap
-            overlayView.post(() -> {
-                if (overlayView.getWidth() > 0 && overlayView.getHeight() > 0) {
-                    drawFacesOnOverlay(faces, imageWidth, imageHeight);
-                }
-            });
+    private void processNextDetected() {
+        DetectedFrame detected = classifyMailbox.claim();
+        if (detected == null) {
             return;
         }
+        try {
+            inferenceExecutor.execute(() -> classifyDetected(detected));
+        } catch (RejectedExecutionException e) {
+            // Executor inferensi sudah dimatikan
+            detected.release();
+            classifyMailbox.finish();
+        }
+    }
 
+    // Berjalan di executor inferensi, satu frame pada satu waktu dan urut nomor frame
+    private void classifyDetected(DetectedFrame detected) {
         try {
-            Bitmap overlay = Bitmap.createBitmap(
-                    overlayView.getWidth(),
-                    overlayView.getHeight(),
-                    Bitmap.Config.ARGB_8888
-            );
-            Canvas canvas = new Canvas(overlay);
-            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
-
-            float scaleX = (float) overlayView.getWidth() / imageWidth;
-            float scaleY = (float) overlayView.getHeight() / imageHeight;
-
-            for (Face face : faces) {
-                Rect bounds = face.getBoundingBox();
-                float left = bounds.left * scaleX;
-                float top = bounds.top * scaleY;
-                float right = bounds.right * scaleX;
-                float bottom = bounds.bottom * scaleY;
-
-                canvas.drawRect(left, top, right, bottom, facePaint);
+            if (detected.sequence <= lastClassifiedSequence) {
+                Log.w(TAG, "Skipping out-of-order frame " + detected.sequence);
+                return;
             }
-
-            overlayView.post(() -> overlayView.setImageBitmap(overlay));
-        } catch (IllegalArgumentException e) {
-            Log.e(TAG, "Error creating overlay bitmap: " + e.getMessage());
+            if (faceDetector == null) {
+                // Mode live dihentikan setelah frame ini diserahkan; jangan klasifikasi lagi
+                return;
+            }
+            lastClassifiedSequence = detected.sequence;
+            onFacesDetected(detected);
+            liveStats.onFrameCompleted(detected.arrivedNanos);
+            recordStageLatency(detected.detectNanos, LiveFrameStats.now() - detected.arrivedNanos);
+        } finally {
+            detected.release();
+            classifyMailbox.finish();
+            processNextDetected();
         }
     }
 
-    private void clearOverlay() {
-        if (overlayView == null) return;
-        overlayView.post(() -> overlayView.setImageBitmap(null));
+    private void onFacesDetected(DetectedFrame detected) {
+        preprocessNanos = 0;
+        inferNanos = 0;
+        if (!detected.faces.isEmpty()) {
+            List<EmotionClassifier.EmotionResult> allEmotions =
+                    classifyFaces(detected.faces, detected.frame, detected.luma);
+            drawFacesOnOverlay(detected.faces, detected.width, detected.height);
+            emotionResults.postValue(allEmotions);
+        } else {
+            clearOverlay();
+            emotionResults.postValue(new ArrayList<>());
+        }
     }
 
+    private void recordStageLatency(long detectNanos, long totalNanos) {
+        if (rateController.recordFrame(detectNanos, preprocessNanos, inferNanos, totalNanos)) {
+            FrameRateController.RateStats stats = rateController.getStats();
+            benchmark.recordFrameRate(stats.currentFps, stats.reason);
+            Log.d(TAG, "Analysis rate adjusted: " + stats);
+        }
+    }
 
+    // Kotak dan label emosi (hasil yang dipublikasikan per wajah) ke buffer overlay
+    private void drawFacesOnOverlay(List<Face> faces, int imageWidth, int imageHeight) {
+        if (overlayView == null) return;
 
-    private Mat imageToMat(Image image) {
-        try {
-            ByteBuffer yBuffer = image.getPlanes()[0].getBuffer();
-            ByteBuffer uBuffer = image.getPlanes()[1].getBuffer();
-            ByteBuffer vBuffer = image.getPlanes()[2].getBuffer();
-
-            int ySize = yBuffer.remaining();
-            int uSize = uBuffer.remaining();
-            int vSize = vBuffer.remaining();
-
-            byte[] nv21 = new byte[ySize + uSize + vSize];
-
-            yBuffer.get(nv21, 0, ySize);
-            vBuffer.get(nv21, ySize, vSize);
-            uBuffer.get(nv21, ySize + vSize, uSize);
-
-            Mat yuv = new Mat(image.getHeight() + image.getHeight() / 2, image.getWidth(), CvType.CV_8UC1);
-            yuv.put(0, 0, nv21);
-
-            Mat rgb = new Mat();
-            Imgproc.cvtColor(yuv, rgb, Imgproc.COLOR_YUV2RGB_NV21);
-            yuv.release();
-
-            return rgb;
-        } catch (Exception e) {
-            Log.e(TAG, "Error converting image to Mat", e);
-            return null;
+        overlayView.beginFrame(imageWidth, imageHeight, mirrorOverlay);
+        for (int i = 0; i < faces.size(); i++) {
+            EmotionScores scores = i < faceScores.size() ? faceScores.get(i) : null;
+            if (scores != null && scores.isValid()) {
+                overlayView.addFace(faces.get(i).getBoundingBox(), scores.getTopIndex(),
+                        scores.getTopConfidence());
+            } else {
+                overlayView.addFace(faces.get(i).getBoundingBox(), FaceOverlayView.NO_EMOTION, 0f);
+            }
         }
+        overlayView.commit();
     }
 
-    private List<EmotionClassifier.EmotionResult> processSingleFace(Face face, Mat imageMat) {
-        List<EmotionClassifier.EmotionResult> significantEmotions = new ArrayList<>();
-        Mat faceRegion = null;
-        Mat processedFace = null;
+    private void clearOverlay() {
+        if (overlayView == null) return;
+        overlayView.clear();
+    }
 
-        try {
-            Rect boundingBox = face.getBoundingBox();
 
-            // Validasi dan perbaiki bounding box jika perlu
-            int left = Math.max(0, boundingBox.left);
-            int top = Math.max(0, boundingBox.top);
-            int width = Math.min(boundingBox.width(), imageMat.width() - left);
-            int height = Math.min(boundingBox.height(), imageMat.height() - top);
 
-            // Buat Rect yang sudah divalidasi
-            Rect validatedBox = new Rect(left, top, width, height);
+    // Hanya wajah yang dijadwalkan yang diklasifikasi; wajah yang tidak berubah diambil dari
+    // cache, sisanya diproses dalam satu batch langsung dari plane luma ke buffer input model.
+    // Semua hasil dihaluskan per tracking ID.
+    private List<EmotionClassifier.EmotionResult> classifyFaces(List<Face> faces, FrameArena.Frame frame,
+                                                                LumaPlane luma) {
+        List<EmotionClassifier.EmotionResult> significantEmotions = new ArrayList<>();
+        int faceCount = faces.size();
+        long now = SystemClock.elapsedRealtime();
+        long stageStart = LiveFrameStats.now();
 
-            if (!isValidBoundingBox(validatedBox, imageMat)) {
-                return significantEmotions;
+        // Scratch frame ini dikembalikan ke arena oleh pemanggil setelah frame selesai
+        try {
+            frame.ensureFaces(faceCount);
+            long[] hashes = frame.hashes;
+            boolean[] due = frame.due;
+            boolean[] cached = frame.cached;
+            int[] pendingRegions = frame.regions;
+
+            // Holder hasil dipakai ulang antar frame; hanya emosi signifikan yang dijadikan objek
+            while (faceScores.size() < faceCount) {
+                faceScores.add(new EmotionScores());
             }
+            scheduler.selectDue(faces, now, due);
+
+            pendingScores.clear();
+            for (int i = 0; i < faceCount; i++) {
+                Face face = faces.get(i);
+                EmotionScores scores = faceScores.get(i);
+                scores.invalidate();
+                if (!due[i]) {
+                    scheduler.publish(face.getTrackingId(), scores);
+                    continue;
+                }
+                // ROI dalam koordinat sensor; hanya potongan 48x48 yang diputar tegak
+                if (!toSensorRoi(face.getBoundingBox(), luma, frame)) {
+                    due[i] = false;
+                    continue;
+                }
+                Rect box = frame.sensorRoi;
+                hashes[i] = resultCache.computeHash(luma, box.left, box.top, box.width(), box.height());
+                cached[i] = resultCache.lookup(face.getTrackingId(), hashes[i], scores);
+                if (!cached[i]) {
+                    int r = pendingScores.size() * 4;
+                    pendingRegions[r] = box.left;
+                    pendingRegions[r + 1] = box.top;
+                    pendingRegions[r + 2] = box.width();
+                    pendingRegions[r + 3] = box.height();
+                    pendingScores.add(scores);
+                }
+            }
+            // Crop, resize dan normalisasi sudah menyatu dengan pengisian input model,
+            // jadi tahap "infer" mencakup semuanya; "preprocess" adalah jadwal, ROI, hash dan cache
+            long inferStart = LiveFrameStats.now();
+            if (!pendingScores.isEmpty()) {
+                emotionClassifier.classifyRegionsInto(luma, pendingRegions, pendingScores.size(),
+                        frame, pendingScores);
+            }
+            inferNanos = LiveFrameStats.now() - inferStart;
 
-            org.opencv.core.Rect opencvRect = new org.opencv.core.Rect(
-                    validatedBox.left,
-                    validatedBox.top,
-                    validatedBox.width(),
-                    validatedBox.height()
-            );
-
-            faceRegion = new Mat(imageMat, opencvRect);
-            processedFace = preprocessFace(faceRegion);
-
-            List<EmotionClassifier.EmotionResult> emotions = emotionClassifier.classify(processedFace);
-            for (EmotionClassifier.EmotionResult emotion : emotions) {
-                if (emotion.getConfidence() > EMOTION_CONFIDENCE_THRESHOLD) {
-                    significantEmotions.add(emotion);
+            for (int i = 0; i < faceCount; i++) {
+                if (!due[i]) {
+                    continue;
                 }
+                Face face = faces.get(i);
+                EmotionScores scores = faceScores.get(i);
+                if (cached[i]) {
+                    // Hasil lama untuk wajah yang sama: jangan dicampur lagi ke EMA dan jangan
+                    // dihitung sebagai inferensi baru. Tanpa slot scheduler, hasil cache dipakai apa adanya.
+                    scheduler.publish(face.getTrackingId(), scores);
+                    continue;
+                }
+                resultCache.put(face.getTrackingId(), hashes[i], scores);
+                // Wajah tanpa tracking ID memakai hasil mentah
+                scheduler.update(face.getTrackingId(), face.getBoundingBox(), scores, now);
+                scheduler.publish(face.getTrackingId(), scores);
             }
 
+            for (int i = 0; i < faceCount; i++) {
+                EmotionScores scores = faceScores.get(i);
+                if (!scores.isValid()) {
+                    continue;
+                }
+                for (int emotion = 0; emotion < scores.size(); emotion++) {
+                    float confidence = scores.getProbability(emotion);
+                    if (confidence > EMOTION_CONFIDENCE_THRESHOLD) {
+                        significantEmotions.add(new EmotionClassifier.EmotionResult(
+                                EmotionClassifier.getEmotionLabel(emotion), confidence));
+                    }
+                }
+            }
         } catch (Exception e) {
-            Log.e(TAG, "Error processing single face: " + e.getMessage(), e);
+            Log.e(TAG, "Error classifying faces: " + e.getMessage(), e);
         } finally {
-            if (faceRegion != null && !faceRegion.empty()) faceRegion.release();
-            if (processedFace != null && !processedFace.empty()) processedFace.release();
+            pendingScores.clear();
         }
+        preprocessNanos = LiveFrameStats.now() - stageStart - inferNanos;
 
         return significantEmotions;
     }
 
-    private boolean isValidBoundingBox(Rect boundingBox, Mat mat) {
+    // Statistik hit/miss cache hasil per tracking ID
+    public FaceResultCache.CacheStats getResultCacheStats() {
+        return resultCache.getStats();
+    }
+
+    // Statistik penjadwalan: fraksi wajah yang benar-benar diklasifikasi per siklus
+    public FaceTrackScheduler.SchedulerStats getSchedulerStats() {
+        return scheduler.getStats();
+    }
+
+    // Potong bounding box (koordinat tegak) ke dalam frame lalu petakan ke koordinat sensor
+    // buffer luma, ditulis ke frame.sensorRoi; false jika tidak ada area yang valid
+    private boolean toSensorRoi(Rect boundingBox, LumaPlane luma, FrameArena.Frame frame) {
+        int frameWidth = luma.uprightWidth();
+        int frameHeight = luma.uprightHeight();
+        int left = Math.max(0, boundingBox.left);
+        int top = Math.max(0, boundingBox.top);
+        int right = Math.min(boundingBox.right, frameWidth);
+        int bottom = Math.min(boundingBox.bottom, frameHeight);
+
+        // android.graphics.Rect: left, top, right, bottom
+        Rect validatedBox = frame.uprightRoi;
+        validatedBox.set(left, top, right, bottom);
+        if (!isValidBoundingBox(validatedBox, frameWidth, frameHeight)) {
+            return false;
+        }
+        luma.mapToSensor(validatedBox, frame.sensorRoi);
+        return true;
+    }
+
+    private boolean isValidBoundingBox(Rect boundingBox, int imageWidth, int imageHeight) {
         boolean isValid = boundingBox.left >= 0 &&
                 boundingBox.top >= 0 &&
-                boundingBox.right <= mat.width() &&
-                boundingBox.bottom <= mat.height() &&
+                boundingBox.right <= imageWidth &&
+                boundingBox.bottom <= imageHeight &&
                 boundingBox.width() > 0 &&
                 boundingBox.height() > 0 &&
-                boundingBox.width() <= mat.width() &&
-                boundingBox.height() <= mat.height();
+                boundingBox.width() <= imageWidth &&
+                boundingBox.height() <= imageHeight;
 
         if (!isValid) {
             Log.w(TAG, String.format("Invalid box dimensions - Image: %dx%d, Box: %s",
-                    mat.width(), mat.height(), boundingBox.toString()));
+                    imageWidth, imageHeight, boundingBox.toString()));
         }
 
         return isValid;
@@ -340,39 +461,6 @@ public class ImageProcessor {
     private static final float[] EMOTION_NORM_MEAN = new float[] {0.485f}; // Sesuaikan dengan dataset emosi
     private static final float[] EMOTION_NORM_STD = new float[] {0.229f}; // Sesuaikan dengan dataset emosi
 
-    private Mat preprocessFace(Mat faceRegion) {
-        Mat grayFace = new Mat();
-        Mat resizedFace = new Mat();
-        Mat normalizedFace = new Mat();
-
-        try {
-            // Konversi ke grayscale terlebih dahulu
-            if (faceRegion.channels() > 1) {
-                Imgproc.cvtColor(faceRegion, grayFace, Imgproc.COLOR_RGB2GRAY);
-            } else {
-                faceRegion.copyTo(grayFace);
-            }
-
-            // Resize ke 48x48 sebelum normalisasi
-            Size targetSize = new Size(48, 48);
-            Imgproc.resize(grayFace, resizedFace, targetSize, 0, 0, Imgproc.INTER_AREA);
-
-            // Konversi ke float32 dan normalisasi sekaligus
-            resizedFace.convertTo(normalizedFace, CvType.CV_32F);
-            Core.divide(normalizedFace, new Scalar(255.0), normalizedFace);
-
-            // Debuggibg
-            Log.d(TAG, String.format("Preprocessed face - Size: %dx%d, Type: %d",
-                    normalizedFace.rows(), normalizedFace.cols(), normalizedFace.type()));
-
-            return normalizedFace;
-        } catch (Exception e) {
-            Log.e(TAG, "Error in preprocessing: " + e.getMessage());
-            throw e;
-        }
-    }
-
-
     @Override
     protected void finalize() throws Throwable {
         cleanup();
@@ -385,7 +473,77 @@ public class ImageProcessor {
                 faceDetector.close();
                 faceDetector = null;
             }
-            isProcessing = false;
+            resultCache.clear();
+            frameArena.release();
+        }
+        // Frame yang masih menunggu tidak akan diproses lagi
+        PendingFrame pending = mailbox.clear();
+        if (pending != null) {
+            pending.imageProxy.close();
+        }
+        DetectedFrame detected = classifyMailbox.clear();
+        if (detected != null) {
+            detected.release();
+        }
+    }
+
+    private static final class PendingFrame {
+        final ImageProxy imageProxy;
+        // Waktu frame masuk analyzer, untuk latensi end-to-end
+        final long arrivedNanos;
+
+        PendingFrame(ImageProxy imageProxy, long arrivedNanos) {
+            this.imageProxy = imageProxy;
+            this.arrivedNanos = arrivedNanos;
+        }
+    }
+
+    // Hasil tahap deteksi yang tidak lagi bergantung pada ImageProxy: plane Y disalin ke
+    // frame arena (hanya jika ada wajah) sehingga kamera bisa langsung melanjutkan
+    private static final class DetectedFrame {
+        final long sequence;
+        final List<Face> faces;
+        // null jika tidak ada wajah
+        final FrameArena.Frame frame;
+        final LumaPlane luma;
+        // Ukuran frame tegak, koordinat bounding box ML Kit
+        final int width;
+        final int height;
+        final long arrivedNanos;
+        final long detectNanos;
+
+        private DetectedFrame(long sequence, List<Face> faces, FrameArena.Frame frame, LumaPlane luma,
+                              int width, int height, long arrivedNanos, long detectNanos) {
+            this.sequence = sequence;
+            this.faces = faces;
+            this.frame = frame;
+            this.luma = luma;
+            this.width = width;
+            this.height = height;
+            this.arrivedNanos = arrivedNanos;
+            this.detectNanos = detectNanos;
+        }
+
+        // null jika arena sudah dilepas (mode live dihentikan)
+        static DetectedFrame capture(long sequence, List<Face> faces, LumaPlane source, FrameArena arena,
+                                     long arrivedNanos, long detectNanos) {
+            FrameArena.Frame frame = null;
+            LumaPlane luma = null;
+            if (!faces.isEmpty()) {
+                frame = arena.acquire(source.width, source.height);
+                if (frame == null) {
+                    return null;
+                }
+                luma = frame.copyLuma(source);
+            }
+            return new DetectedFrame(sequence, faces, frame, luma, source.uprightWidth(),
+                    source.uprightHeight(), arrivedNanos, detectNanos);
+        }
+
+        void release() {
+            if (frame != null) {
+                frame.close();
+            }
         }
     }
 }
\ No newline at end of file
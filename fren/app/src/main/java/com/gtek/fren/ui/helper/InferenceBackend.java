@@ -0,0 +1,18 @@
+package com.gtek.fren.ui.helper;
+
+// Engine inferensi yang bisa dipilih saat runtime (TFLite atau ExecuTorch). Semua backend
+// membuat InferenceSession dengan kontrak buffer yang sama, sehingga preprocessing,
+// pool, ensemble dan cascade tidak perlu tahu engine mana yang dipakai.
+interface InferenceBackend {
+
+    String getName();
+
+    // Nama asset untuk model logis, mis. cnnresnet.tflite -> cnnresnet.pte
+    String resolveAssetName(String modelName);
+
+    // True jika engine memuat model dari path file, bukan dari ByteBuffer
+    boolean requiresModelFile();
+
+    // Buat satu sesi baru; dipanggil sekali per slot pool
+    InferenceSession createSession(ModelLoader.MappedModel model);
+}
@@ -0,0 +1,269 @@
+package com.gtek.fren.ui.helper;
+
+import android.util.Log;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Satu instance engine inferensi beserta buffer input/output miliknya sendiri.
+// Kontrak buffer sama untuk semua backend: input direct ByteBuffer [N,48,48,1] (native order,
+// tata letak memorinya identik dengan [N,1,48,48]) dan output [N,7]. Preprocessing menulis ke
+// buffer ini, subclass hanya menjalankan engine di atasnya.
+// Tidak thread-safe: hanya dipakai oleh satu thread selama dipinjam dari InterpreterPool.
+abstract class InferenceSession {
+
+    private static final String TAG = "InferenceSession";
+    static final int INPUT_SIZE = 48;
+    static final int NUM_CLASSES = 7;
+    private static final int FLOAT_BYTES = 4;
+    private static final int MAX_CACHED_BATCH_SHAPES = 8;
+
+    // Tipe dan parameter kuantisasi tensor, dibaca sekali saat model dimuat
+    private final TensorSpec inputSpec;
+    private final TensorSpec outputSpec;
+
+    // Buffer input/output yang dipakai ulang, langsung diberikan ke engine
+    private final TensorBuffers singleBuffers;
+    // Cache buffer per ukuran batch agar batch berulang tidak alokasi ulang
+    private final Map<Integer, TensorBuffers> batchBuffers =
+            new LinkedHashMap<Integer, TensorBuffers>(MAX_CACHED_BATCH_SHAPES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, TensorBuffers> eldest) {
+                    if (size() > MAX_CACHED_BATCH_SHAPES) {
+                        eldest.getValue().release();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+    private final Mat scratchMat = new Mat();
+    // Jalur luma: crop + resize area + normalisasi/kuantisasi langsung ke buffer input
+    private final FaceTensorKernel kernel = new FaceTensorKernel(INPUT_SIZE, INPUT_SIZE);
+    private final int kernelEncoding;
+    private final float kernelScale;
+    private final float kernelOffset;
+
+    InferenceSession(TensorSpec inputSpec, TensorSpec outputSpec) {
+        this.inputSpec = inputSpec;
+        this.outputSpec = outputSpec;
+        this.singleBuffers = new TensorBuffers(1, inputSpec, outputSpec);
+        if (inputSpec.isQuantized()) {
+            kernelEncoding = inputSpec.dataType == DataType.UINT8
+                    ? FaceTensorKernel.OUTPUT_UINT8
+                    : FaceTensorKernel.OUTPUT_INT8;
+            kernelScale = 1f / (255f * inputSpec.scale);
+            kernelOffset = inputSpec.zeroPoint;
+        } else {
+            kernelEncoding = FaceTensorKernel.OUTPUT_FLOAT32;
+            kernelScale = 1f / 255f;
+            kernelOffset = 0f;
+        }
+        Log.d(TAG, "Input " + inputSpec + ", output " + outputSpec);
+    }
+
+    // Jalankan engine: baca buffers.input dan tulis buffers.output (posisi sudah di-rewind)
+    abstract void invoke(TensorBuffers buffers);
+
+    // Lepaskan engine; buffer dilepas oleh close()
+    abstract void closeEngine();
+
+    // Verify model with dummy input
+    void verify() {
+        singleBuffers.faceMats[0].setTo(new Scalar(0));
+        runInference(singleBuffers);
+    }
+
+    // Jalankan satu wajah, mengembalikan logits [7] milik sesi ini
+    float[] run(Mat faceImage) {
+        fillInput(faceImage, singleBuffers.faceMats[0]);
+        runInference(singleBuffers);
+        return singleBuffers.logits;
+    }
+
+    // Jalankan N wajah dalam satu pemanggilan, mengembalikan logits [N*7] milik sesi ini
+    float[] runBatch(List<Mat> faceImages) {
+        TensorBuffers buffers = getBatchBuffers(faceImages.size());
+        for (int slot = 0; slot < faceImages.size(); slot++) {
+            fillInput(faceImages.get(slot), buffers.faceMats[slot]);
+        }
+        runInference(buffers);
+        return buffers.logits;
+    }
+
+    // Jalankan wajah langsung dari plane luma. regions berisi (left, top, width, height) per
+    // wajah dalam koordinat sensor; wajah first .. first+count-1 yang dipakai. ROI harus sudah
+    // berada di dalam frame. Setiap wajah diputar tegak saat ditulis ke buffer input.
+    float[] runRegions(LumaPlane luma, int[] regions, int first, int count) {
+        TensorBuffers buffers = getBatchBuffers(count);
+        int faceBytes = INPUT_SIZE * INPUT_SIZE * inputSpec.bytesPerElement;
+        for (int slot = 0; slot < count; slot++) {
+            int r = (first + slot) * 4;
+            kernel.resizeInto(luma.buffer, luma.rowStride, luma.pixelStride,
+                    regions[r], regions[r + 1], regions[r + 2], regions[r + 3], luma.rotationDegrees,
+                    buffers.input, slot * faceBytes, kernelEncoding, kernelScale, kernelOffset);
+        }
+        runInference(buffers);
+        return buffers.logits;
+    }
+
+    void close() {
+        closeEngine();
+        singleBuffers.release();
+        for (TensorBuffers buffers : batchBuffers.values()) {
+            buffers.release();
+        }
+        batchBuffers.clear();
+        scratchMat.release();
+    }
+
+    private TensorBuffers getBatchBuffers(int batchSize) {
+        if (batchSize == 1) {
+            return singleBuffers;
+        }
+        TensorBuffers buffers = batchBuffers.get(batchSize);
+        if (buffers == null) {
+            buffers = new TensorBuffers(batchSize, inputSpec, outputSpec);
+            batchBuffers.put(batchSize, buffers);
+        }
+        return buffers;
+    }
+
+    // Tulis wajah 48x48 grayscale ke Mat tujuan tanpa array perantara: float 0-1 untuk
+    // model float, atau byte terkuantisasi (q = x / scale + zeroPoint) untuk model uint8/int8
+    private void fillInput(Mat faceImage, Mat target) {
+        Mat source = faceImage;
+        if (source.channels() > 1) {
+            Core.extractChannel(source, scratchMat, 0);
+            source = scratchMat;
+        }
+        if (source.rows() != INPUT_SIZE || source.cols() != INPUT_SIZE) {
+            Imgproc.resize(source, scratchMat, new Size(INPUT_SIZE, INPUT_SIZE), 0, 0, Imgproc.INTER_AREA);
+            source = scratchMat;
+        }
+
+        // Input 8-bit dinormalisasi ke 0-1, input float dianggap sudah ternormalisasi
+        double normalize = source.depth() == CvType.CV_8U ? 1.0 / 255.0 : 1.0;
+        if (inputSpec.isQuantized()) {
+            // Untuk model uint8 dengan scale 1/255 dan zeroPoint 0 ini menjadi salinan byte mentah
+            source.convertTo(target, inputSpec.matDepth, normalize / inputSpec.scale, inputSpec.zeroPoint);
+        } else {
+            source.convertTo(target, CvType.CV_32F, normalize);
+        }
+    }
+
+    private void runInference(TensorBuffers buffers) {
+        buffers.input.rewind();
+        buffers.output.rewind();
+        invoke(buffers);
+        readLogits(buffers);
+    }
+
+    // Output terkuantisasi didekuantisasi: x = (q - zeroPoint) * scale
+    private void readLogits(TensorBuffers buffers) {
+        if (buffers.outputFloats != null) {
+            buffers.outputFloats.rewind();
+            buffers.outputFloats.get(buffers.logits);
+            return;
+        }
+        boolean unsigned = outputSpec.dataType == DataType.UINT8;
+        for (int i = 0; i < buffers.logits.length; i++) {
+            byte raw = buffers.output.get(i);
+            int q = unsigned ? (raw & 0xFF) : raw;
+            buffers.logits[i] = (q - outputSpec.zeroPoint) * outputSpec.scale;
+        }
+    }
+
+    // Tipe data tensor beserta parameter kuantisasi affine-nya
+    static final class TensorSpec {
+        static final TensorSpec FLOAT32 = new TensorSpec(DataType.FLOAT32, 0f, 0);
+
+        final DataType dataType;
+        final float scale;
+        final int zeroPoint;
+        final int bytesPerElement;
+        final int matDepth;
+
+        TensorSpec(DataType dataType, float scale, int zeroPoint) {
+            this.dataType = dataType;
+            this.scale = scale;
+            this.zeroPoint = zeroPoint;
+            switch (dataType) {
+                case FLOAT32:
+                    bytesPerElement = FLOAT_BYTES;
+                    matDepth = CvType.CV_32F;
+                    break;
+                case UINT8:
+                    bytesPerElement = 1;
+                    matDepth = CvType.CV_8U;
+                    break;
+                case INT8:
+                    bytesPerElement = 1;
+                    matDepth = CvType.CV_8S;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported tensor type: " + dataType);
+            }
+        }
+
+        boolean isQuantized() {
+            return dataType != DataType.FLOAT32;
+        }
+
+        @Override
+        public String toString() {
+            return isQuantized()
+                    ? dataType + " (scale=" + scale + ", zeroPoint=" + zeroPoint + ")"
+                    : dataType.toString();
+        }
+    }
+
+    // Buffer input/output native untuk satu ukuran batch [N,48,48,1] -> [N,7]
+    static final class TensorBuffers {
+        final int batchSize;
+        final ByteBuffer input;
+        final ByteBuffer output;
+        // Null untuk output terkuantisasi, yang dibaca per byte dari output
+        final FloatBuffer outputFloats;
+        final float[] logits;
+        // Satu Mat per wajah yang menunjuk langsung ke potongan buffer input
+        final Mat[] faceMats;
+
+        TensorBuffers(int batchSize, TensorSpec inputSpec, TensorSpec outputSpec) {
+            int faceBytes = INPUT_SIZE * INPUT_SIZE * inputSpec.bytesPerElement;
+            int faceMatType = CvType.makeType(inputSpec.matDepth, 1);
+            this.batchSize = batchSize;
+            this.input = ByteBuffer.allocateDirect(batchSize * faceBytes)
+                    .order(ByteOrder.nativeOrder());
+            this.output = ByteBuffer.allocateDirect(batchSize * NUM_CLASSES * outputSpec.bytesPerElement)
+                    .order(ByteOrder.nativeOrder());
+            this.outputFloats = outputSpec.isQuantized() ? null : output.asFloatBuffer();
+            this.logits = new float[batchSize * NUM_CLASSES];
+            this.faceMats = new Mat[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                input.position(i * faceBytes);
+                input.limit((i + 1) * faceBytes);
+                ByteBuffer slice = input.slice().order(ByteOrder.nativeOrder());
+                faceMats[i] = new Mat(INPUT_SIZE, INPUT_SIZE, faceMatType, slice);
+            }
+            input.clear();
+        }
+
+        void release() {
+            for (Mat mat : faceMats) {
+                mat.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.gtek.fren.ui.helper;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Thread untuk pekerjaan setelah deteksi wajah (crop, preprocessing, inferensi, gambar overlay)
+// agar tidak berjalan di main thread. Prioritas satu tingkat di atas DEFAULT (-1): sedikit
+// didahulukan dari pekerjaan latar biasa, tetapi tetap di bawah main thread dan RenderThread
+// (keduanya DISPLAY, -4) agar inferensi tidak merebut CPU dari rendering.
+public class InferenceThreadFactory implements ThreadFactory {
+
+    public static final int DEFAULT_PRIORITY =
+            Process.THREAD_PRIORITY_DEFAULT + Process.THREAD_PRIORITY_MORE_FAVORABLE;
+
+    private final String namePrefix;
+    private final int priority;
+    private final AtomicInteger threadCount = new AtomicInteger(1);
+
+    public InferenceThreadFactory(String namePrefix, int priority) {
+        this.namePrefix = namePrefix;
+        this.priority = priority;
+    }
+
+    // Satu thread: hasil per frame tetap berurutan dan sesi inferensi tidak diperebutkan
+    public static ExecutorService newInferenceExecutor(String namePrefix) {
+        return Executors.newSingleThreadExecutor(new InferenceThreadFactory(namePrefix, DEFAULT_PRIORITY));
+    }
+
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+        // Prioritas Linux (nice) harus diset dari dalam thread itu sendiri
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(priority);
+            runnable.run();
+        }, namePrefix + "-" + threadCount.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
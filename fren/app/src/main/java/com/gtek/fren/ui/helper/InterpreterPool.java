@@ -0,0 +1,171 @@
+package com.gtek.fren.ui.helper;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Kumpulan K sesi inferensi dari model dan backend yang sama. Setiap sesi hanya dipakai satu thread
+// selama dipinjam, sehingga wajah/frame/gambar berbeda bisa diklasifikasi paralel.
+public class InterpreterPool {
+
+    private static final String TAG = "InterpreterPool";
+    // Penunggu memeriksa status closed setiap slice agar tidak menunggu penuh di pool yang sudah ditutup
+    private static final long POLL_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final BlockingQueue<InferenceSession> idleSessions;
+    private final List<InferenceSession> allSessions;
+    private final int size;
+    private volatile boolean closed = false;
+
+    // Occupancy metrics
+    private final Object metricsLock = new Object();
+    private int inUse = 0;
+    private int peakInUse = 0;
+    private long totalLeases = 0;
+    private long timeouts = 0;
+    private long totalWaitNanos = 0;
+
+    InterpreterPool(InferenceBackend backend, ModelLoader.MappedModel model, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.size = size;
+        this.idleSessions = new ArrayBlockingQueue<>(size);
+        this.allSessions = new ArrayList<>(size);
+
+        try {
+            for (int i = 0; i < size; i++) {
+                InferenceSession session = backend.createSession(model);
+                allSessions.add(session);
+                session.verify();
+                idleSessions.add(session);
+            }
+        } catch (RuntimeException e) {
+            for (InferenceSession session : allSessions) {
+                session.close();
+            }
+            throw e;
+        }
+        Log.d(TAG, "Created " + backend.getName() + " pool with " + size + " sessions for " + model.name);
+    }
+
+    // Pinjam satu sesi, menunggu paling lama timeout
+    InferenceSession acquire(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (closed) {
+            throw new IllegalStateException("Interpreter pool is closed");
+        }
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+        InferenceSession session = idleSessions.poll();
+        while (session == null && !closed) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            session = idleSessions.poll(Math.min(remaining, POLL_SLICE_NANOS), TimeUnit.NANOSECONDS);
+        }
+        long waited = System.nanoTime() - start;
+
+        synchronized (metricsLock) {
+            totalWaitNanos += waited;
+            if (session == null) {
+                if (!closed) {
+                    timeouts++;
+                }
+            } else {
+                totalLeases++;
+                inUse++;
+                peakInUse = Math.max(peakInUse, inUse);
+            }
+        }
+        if (session == null) {
+            if (closed) {
+                // Pool ditutup (model diganti/dikeluarkan) selama menunggu; pemanggil pindah ke pool baru
+                throw new IllegalStateException("Interpreter pool closed while waiting");
+            }
+            throw new TimeoutException("No interpreter available after " + unit.toMillis(timeout) + " ms");
+        }
+        return session;
+    }
+
+    void release(InferenceSession session) {
+        synchronized (metricsLock) {
+            inUse--;
+            if (!closed) {
+                idleSessions.offer(session);
+                return;
+            }
+            metricsLock.notifyAll();
+        }
+        session.close();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public PoolMetrics getMetrics() {
+        synchronized (metricsLock) {
+            long attempts = totalLeases + timeouts;
+            double avgWaitMs = attempts > 0 ? (totalWaitNanos / (double) attempts) / 1_000_000.0 : 0;
+            return new PoolMetrics(size, inUse, peakInUse, totalLeases, timeouts, avgWaitMs);
+        }
+    }
+
+    // Tutup sesi yang menganggur; sesi yang sedang dipinjam ditutup saat dikembalikan
+    public void close() {
+        synchronized (metricsLock) {
+            closed = true;
+        }
+        InferenceSession session;
+        while ((session = idleSessions.poll()) != null) {
+            session.close();
+        }
+        Log.d(TAG, "Interpreter pool closed");
+    }
+
+    // Tolak peminjaman baru, tunggu panggilan yang sedang berjalan selesai, lalu tutup
+    public void drainAndClose(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (metricsLock) {
+            closed = true;
+            long remaining = timeoutMs;
+            while (inUse > 0 && remaining > 0) {
+                metricsLock.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            if (inUse > 0) {
+                Log.w(TAG, "Drain timed out with " + inUse + " interpreters still in use");
+            }
+        }
+        close();
+    }
+
+    public static class PoolMetrics {
+        public final int poolSize;
+        public final int inUse;
+        public final int peakInUse;
+        public final long totalLeases;
+        public final long timeouts;
+        public final double avgWaitMs;
+
+        public PoolMetrics(int poolSize, int inUse, int peakInUse,
+                           long totalLeases, long timeouts, double avgWaitMs) {
+            this.poolSize = poolSize;
+            this.inUse = inUse;
+            this.peakInUse = peakInUse;
+            this.totalLeases = totalLeases;
+            this.timeouts = timeouts;
+            this.avgWaitMs = avgWaitMs;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.gtek.fren.ui.helper;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Looper;
+import android.util.Log;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.tensorflow.lite.Interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Memilih Interpreter.Options tercepat untuk satu model di perangkat ini dengan
+// mengukur beberapa konfigurasi pada input sintetis 48x48. Hasilnya disimpan per
+// model dan per perangkat sehingga peluncuran berikutnya tidak perlu tuning ulang.
+// Jumlah thread dibatasi cores / concurrency karena pool menjalankan beberapa sesi sekaligus.
+public class InterpreterTuner {
+
+    private static final String TAG = "InterpreterTuner";
+    private static final String PREFS_NAME = "interpreter_tuning";
+    private static final int MAX_THREADS = 4;
+    private static final int WARMUP_RUNS = 2;
+    private static final int TIMED_RUNS = 7;
+    // Satu tuning pada satu waktu di seluruh proses: pengukuran yang berjalan bersamaan
+    // saling berebut CPU dan hasilnya tidak berarti
+    private static final Object TUNING_LOCK = new Object();
+
+    private final SharedPreferences preferences;
+    // Jumlah sesi yang berjalan bersamaan (ukuran pool)
+    private final int concurrency;
+
+    public InterpreterTuner(Context context, int concurrency) {
+        this.preferences = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    // Tuning bisa memakan beberapa detik; di main thread dipakai Options default tanpa tuning
+    public Interpreter.Options resolveOptions(ModelLoader.MappedModel model) {
+        synchronized (TUNING_LOCK) {
+            // Diperiksa di dalam lock: pemanggil lain mungkin baru saja menyimpan hasil tuning
+            TunedConfig config = loadConfig(model);
+            if (config != null) {
+                Log.d(TAG, "Using stored config for " + model.name + ": " + config);
+                return config.toOptions();
+            }
+            if (isMainThread()) {
+                Log.w(TAG, "Skipping tuning of " + model.name + " on the main thread, using defaults");
+                return new TunedConfig(-1, true, Double.MAX_VALUE).toOptions();
+            }
+            config = tune(model);
+            if (config.medianMs != Double.MAX_VALUE) {
+                saveConfig(model, config);
+            }
+            return config.toOptions();
+        }
+    }
+
+    static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    private TunedConfig tune(ModelLoader.MappedModel model) {
+        // Setiap sesi di pool memakai numThreads sendiri; jangan melebihi jumlah core
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = Math.max(1, Math.min(MAX_THREADS, cores / concurrency));
+        List<TunedConfig> candidates = new ArrayList<>();
+        for (boolean useXnnpack : new boolean[]{true, false}) {
+            for (int threads = 1; threads <= maxThreads; threads++) {
+                candidates.add(new TunedConfig(threads, useXnnpack, Double.MAX_VALUE));
+            }
+        }
+
+        Mat syntheticFace = new Mat(InferenceSession.INPUT_SIZE, InferenceSession.INPUT_SIZE, CvType.CV_8UC1);
+        Core.randu(syntheticFace, 0, 256);
+
+        TunedConfig best = null;
+        try {
+            for (TunedConfig candidate : candidates) {
+                double medianMs = measure(model, candidate, syntheticFace);
+                TunedConfig measured = new TunedConfig(candidate.numThreads, candidate.useXnnpack, medianMs);
+                Log.d(TAG, "Candidate " + measured);
+                if (best == null || measured.medianMs < best.medianMs) {
+                    best = measured;
+                }
+            }
+        } finally {
+            syntheticFace.release();
+        }
+
+        if (best == null || best.medianMs == Double.MAX_VALUE) {
+            // Semua kandidat gagal: pakai default Interpreter.Options
+            Log.w(TAG, "Tuning failed, falling back to default options");
+            return new TunedConfig(-1, true, Double.MAX_VALUE);
+        }
+        Log.d(TAG, "Selected " + best + " for " + model.name);
+        return best;
+    }
+
+    private double measure(ModelLoader.MappedModel model, TunedConfig candidate, Mat syntheticFace) {
+        InferenceSession session = null;
+        try {
+            session = new TfLiteSession(model.buffer, candidate.toOptions());
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                session.run(syntheticFace);
+            }
+
+            long[] durations = new long[TIMED_RUNS];
+            for (int i = 0; i < TIMED_RUNS; i++) {
+                long start = System.nanoTime();
+                session.run(syntheticFace);
+                durations[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(durations);
+            return durations[TIMED_RUNS / 2] / 1_000_000.0;
+        } catch (Exception e) {
+            Log.w(TAG, "Candidate " + candidate + " failed: " + e.getMessage());
+            return Double.MAX_VALUE;
+        } finally {
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    // Kunci berubah jika versi model, ukuran pool, atau build perangkat berubah
+    private String configKey(ModelLoader.MappedModel model) {
+        return model.name + "|" + model.version + "|x" + concurrency + "|" + Build.FINGERPRINT;
+    }
+
+    private TunedConfig loadConfig(ModelLoader.MappedModel model) {
+        String key = configKey(model);
+        if (!preferences.contains(key + ".threads")) {
+            return null;
+        }
+        return new TunedConfig(
+                preferences.getInt(key + ".threads", -1),
+                preferences.getBoolean(key + ".xnnpack", true),
+                preferences.getFloat(key + ".medianMs", 0f));
+    }
+
+    private void saveConfig(ModelLoader.MappedModel model, TunedConfig config) {
+        String key = configKey(model);
+        // Hapus hasil lama untuk model ini agar preferences tidak terus bertambah
+        SharedPreferences.Editor editor = preferences.edit();
+        for (String existing : preferences.getAll().keySet()) {
+            if (existing.startsWith(model.name + "|")) {
+                editor.remove(existing);
+            }
+        }
+        editor.putInt(key + ".threads", config.numThreads)
+                .putBoolean(key + ".xnnpack", config.useXnnpack)
+                .putFloat(key + ".medianMs", (float) config.medianMs)
+                .apply();
+    }
+
+    public static class TunedConfig {
+        public final int numThreads;
+        public final boolean useXnnpack;
+        public final double medianMs;
+
+        public TunedConfig(int numThreads, boolean useXnnpack, double medianMs) {
+            this.numThreads = numThreads;
+            this.useXnnpack = useXnnpack;
+            this.medianMs = medianMs;
+        }
+
+        Interpreter.Options toOptions() {
+            Interpreter.Options options = new Interpreter.Options();
+            options.setNumThreads(numThreads);
+            options.setUseXNNPACK(useXnnpack);
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "TunedConfig{threads=%d, xnnpack=%b, median=%.2f ms}",
+                    numThreads, useXnnpack, medianMs);
+        }
+    }
+}
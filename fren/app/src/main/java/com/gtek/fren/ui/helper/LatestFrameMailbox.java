@@ -0,0 +1,48 @@
+package com.gtek.fren.ui.helper;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Kotak surat satu slot tanpa lock untuk frame kamera. Produsen (analyzer CameraX) selalu
+// menimpa frame yang belum diproses dengan yang lebih baru; satu worker mengambil frame
+// terbaru begitu ia bebas. Frame yang tertimpa dikembalikan oleh offer() agar pemanggil
+// bisa menutupnya. Dengan begitu throughput mengikuti kapasitas pipeline, bukan jeda tetap.
+final class LatestFrameMailbox<T> {
+
+    private final AtomicReference<T> slot = new AtomicReference<>();
+    // true selama worker sedang memproses frame yang diambil lewat claim()
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+
+    // Simpan frame terbaru; mengembalikan frame lama yang belum diproses (atau null)
+    T offer(T frame) {
+        return slot.getAndSet(frame);
+    }
+
+    // Ambil frame terbaru jika worker bebas; null jika worker sibuk atau slot kosong.
+    // Frame yang dikembalikan harus diakhiri dengan finish().
+    T claim() {
+        while (slot.get() != null) {
+            if (!busy.compareAndSet(false, true)) {
+                // Worker sibuk; ia akan memeriksa slot lagi setelah finish()
+                return null;
+            }
+            T frame = slot.getAndSet(null);
+            if (frame != null) {
+                return frame;
+            }
+            // Slot dikosongkan clear() di antara pemeriksaan; lepaskan dan ulangi
+            busy.set(false);
+        }
+        return null;
+    }
+
+    // Worker selesai; panggil claim() lagi sesudahnya untuk frame yang masuk selama sibuk
+    void finish() {
+        busy.set(false);
+    }
+
+    // Kosongkan slot; mengembalikan frame yang belum diproses (atau null)
+    T clear() {
+        return slot.getAndSet(null);
+    }
+}
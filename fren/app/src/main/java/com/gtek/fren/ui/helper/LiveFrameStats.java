@@ -0,0 +1,94 @@
+package com.gtek.fren.ui.helper;
+
+import android.os.SystemClock;
+
+import java.util.Locale;
+
+// Statistik mode live: FPS hasil (frame yang selesai diproses per detik, dari jendela
+// geser timestamp), latensi dari frame masuk ke analyzer sampai hasil dipublikasikan,
+// dan jumlah frame yang dibuang. Dipanggil dari thread analyzer dan main thread.
+public class LiveFrameStats {
+
+    // Jumlah frame selesai terakhir untuk menghitung FPS
+    private static final int FPS_WINDOW = 30;
+    // Bobot sampel baru untuk rata-rata latensi (EMA)
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final long[] completedNanos = new long[FPS_WINDOW];
+    private int completedCount = 0;
+    private int nextSlot = 0;
+    private double avgLatencyMs = 0;
+    private double lastLatencyMs = 0;
+    private long framesCompleted = 0;
+    private long framesDropped = 0;
+
+    // Waktu masuk frame, untuk diteruskan ke onFrameCompleted
+    public static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    public synchronized void onFrameDropped() {
+        framesDropped++;
+    }
+
+    public synchronized void onFrameCompleted(long arrivedNanos) {
+        long completed = now();
+        double latencyMs = (completed - arrivedNanos) / 1_000_000.0;
+        avgLatencyMs = framesCompleted == 0
+                ? latencyMs
+                : avgLatencyMs + LATENCY_SMOOTHING * (latencyMs - avgLatencyMs);
+        lastLatencyMs = latencyMs;
+        framesCompleted++;
+
+        completedNanos[nextSlot] = completed;
+        nextSlot = (nextSlot + 1) % FPS_WINDOW;
+        completedCount = Math.min(completedCount + 1, FPS_WINDOW);
+    }
+
+    public synchronized Snapshot getSnapshot() {
+        double fps = 0;
+        if (completedCount > 1) {
+            int newest = (nextSlot - 1 + FPS_WINDOW) % FPS_WINDOW;
+            int oldest = (nextSlot - completedCount + FPS_WINDOW) % FPS_WINDOW;
+            long span = completedNanos[newest] - completedNanos[oldest];
+            // Jendela dianggap basi jika frame terakhir sudah lama selesai
+            long sinceNewest = now() - completedNanos[newest];
+            if (span > 0) {
+                fps = (completedCount - 1) * 1_000_000_000.0 / (span + sinceNewest);
+            }
+        }
+        return new Snapshot(fps, avgLatencyMs, lastLatencyMs, framesCompleted, framesDropped);
+    }
+
+    public synchronized void reset() {
+        completedCount = 0;
+        nextSlot = 0;
+        avgLatencyMs = 0;
+        lastLatencyMs = 0;
+        framesCompleted = 0;
+        framesDropped = 0;
+    }
+
+    public static class Snapshot {
+        public final double fps;
+        public final double avgLatencyMs;
+        public final double lastLatencyMs;
+        public final long framesCompleted;
+        public final long framesDropped;
+
+        public Snapshot(double fps, double avgLatencyMs, double lastLatencyMs,
+                        long framesCompleted, long framesDropped) {
+            this.fps = fps;
+            this.avgLatencyMs = avgLatencyMs;
+            this.lastLatencyMs = lastLatencyMs;
+            this.framesCompleted = framesCompleted;
+            this.framesDropped = framesDropped;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "LiveFrameStats{fps=%.1f, latency=%.1fms (last %.1fms), completed=%d, dropped=%d}",
+                    fps, avgLatencyMs, lastLatencyMs, framesCompleted, framesDropped);
+        }
+    }
+}
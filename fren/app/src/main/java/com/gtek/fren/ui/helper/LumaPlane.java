@@ -0,0 +1,70 @@
+package com.gtek.fren.ui.helper;
+
+import android.graphics.Rect;
+import android.media.Image;
+
+import java.nio.ByteBuffer;
+
+// Plane Y (luma) dari frame YUV_420_888 tanpa salinan. Model hanya memakai satu kanal
+// abu-abu, jadi wajah dibaca langsung dari sini (lihat FaceTensorKernel) tanpa konversi
+// warna seluruh frame.
+// Buffer hanya valid selama ImageProxy asalnya belum ditutup.
+// Detektor bekerja pada frame tegak (setelah rotationDegrees), sedangkan buffer tetap dalam
+// orientasi sensor: mapToSensor memetakan bounding box kembali ke koordinat buffer.
+final class LumaPlane {
+
+    final ByteBuffer buffer;
+    final int width;
+    final int height;
+    // Plane bisa memiliki padding per baris (rowStride > width) atau piksel berselang (pixelStride > 1)
+    final int rowStride;
+    final int pixelStride;
+    // Rotasi searah jarum jam (0/90/180/270) yang membuat frame tegak
+    final int rotationDegrees;
+
+    LumaPlane(ByteBuffer buffer, int width, int height, int rowStride, int pixelStride,
+              int rotationDegrees) {
+        this.buffer = buffer;
+        this.width = width;
+        this.height = height;
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+        this.rotationDegrees = rotationDegrees;
+    }
+
+    static LumaPlane of(Image image, int rotationDegrees) {
+        Image.Plane plane = image.getPlanes()[0];
+        return new LumaPlane(plane.getBuffer(), image.getWidth(), image.getHeight(),
+                plane.getRowStride(), plane.getPixelStride(), rotationDegrees);
+    }
+
+    // Ukuran frame tegak, yaitu ruang koordinat bounding box detektor
+    int uprightWidth() {
+        return rotationDegrees == 90 || rotationDegrees == 270 ? height : width;
+    }
+
+    int uprightHeight() {
+        return rotationDegrees == 90 || rotationDegrees == 270 ? width : height;
+    }
+
+    // Petakan kotak tegak (left, top, right, bottom) ke koordinat sensor di out
+    void mapToSensor(Rect upright, Rect out) {
+        switch (rotationDegrees) {
+            case 0:
+                out.set(upright);
+                break;
+            case 90:
+                out.set(upright.top, height - upright.right, upright.bottom, height - upright.left);
+                break;
+            case 180:
+                out.set(width - upright.right, height - upright.bottom,
+                        width - upright.left, height - upright.top);
+                break;
+            case 270:
+                out.set(width - upright.bottom, upright.left, width - upright.top, upright.right);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rotation: " + rotationDegrees);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.gtek.fren.ui.helper;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+// Memuat model sebagai MappedByteBuffer tanpa menyalinnya ke heap. Asset yang
+// tidak terkompresi di-mmap langsung dari APK; asset terkompresi disalin sekali ke
+// file cache yang diberi versi aplikasi dan checksum, lalu file itu yang di-mmap.
+public class ModelLoader {
+
+    private static final String TAG = "ModelLoader";
+    private static final String CACHE_DIR = "models";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Context context;
+    private final long appVersion;
+
+    public ModelLoader(Context context) {
+        this.context = context.getApplicationContext();
+        this.appVersion = resolveAppVersion(this.context);
+    }
+
+    public MappedModel load(String assetName) throws IOException {
+        // Salinan lama tidak terpakai di jalur mana pun, termasuk mmap langsung dari APK
+        deleteLegacyCopy(assetName);
+        try (AssetFileDescriptor fd = context.getAssets().openFd(assetName);
+             FileInputStream inputStream = new FileInputStream(fd.getFileDescriptor());
+             FileChannel channel = inputStream.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    fd.getStartOffset(), fd.getDeclaredLength());
+            Log.d(TAG, "Mapped " + assetName + " directly from APK (" + fd.getDeclaredLength() + " bytes)");
+            return new MappedModel(assetName, buffer, appVersion + ":" + fd.getDeclaredLength(), null);
+        } catch (FileNotFoundException e) {
+            // openFd gagal untuk asset terkompresi
+            Log.d(TAG, assetName + " is compressed in the APK, using cache file");
+            return loadFromCache(assetName);
+        }
+    }
+
+    // Untuk engine yang memuat model dari path: selalu gunakan (dan mmap) file cache
+    public MappedModel loadAsFile(String assetName) throws IOException {
+        deleteLegacyCopy(assetName);
+        return loadFromCache(assetName);
+    }
+
+    private MappedModel loadFromCache(String assetName) throws IOException {
+        File cacheDir = new File(context.getFilesDir(), CACHE_DIR);
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            throw new IOException("Cannot create model cache directory: " + cacheDir);
+        }
+
+        String versionPrefix = assetName + "." + appVersion + ".";
+        File cached = findCachedFile(cacheDir, assetName, versionPrefix);
+        if (cached == null) {
+            cached = copyToCache(cacheDir, assetName, versionPrefix);
+        } else {
+            Log.d(TAG, "Model found in cache: " + cached.getName());
+        }
+
+        try (FileInputStream inputStream = new FileInputStream(cached);
+             FileChannel channel = inputStream.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedModel(assetName, buffer, cached.getName(), cached);
+        }
+    }
+
+    // Cari salinan untuk versi aplikasi ini yang CRC32-nya cocok dengan akhiran nama file.
+    // Salinan versi lama, salinan rusak, dan duplikat dihapus.
+    private File findCachedFile(File cacheDir, String assetName, String versionPrefix) {
+        File match = null;
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return null;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (match == null && name.startsWith(versionPrefix) && !name.endsWith(".tmp")
+                    && file.length() > 0 && hasValidChecksum(file, name.substring(versionPrefix.length()))) {
+                match = file;
+            } else if (name.startsWith(assetName + ".")) {
+                Log.d(TAG, "Deleting stale model cache: " + name);
+                file.delete();
+            }
+        }
+        return match;
+    }
+
+    // Hitung ulang CRC32 isi file dan bandingkan dengan checksum di nama file
+    private static boolean hasValidChecksum(File file, String expectedHex) {
+        CRC32 crc = new CRC32();
+        try (InputStream is = new FileInputStream(file)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read cached model " + file.getName() + ": " + e.getMessage());
+            return false;
+        }
+        String actualHex = String.format(Locale.US, "%08x", crc.getValue());
+        if (!actualHex.equals(expectedHex)) {
+            Log.w(TAG, "Checksum mismatch for " + file.getName() + " (actual " + actualHex + ")");
+            return false;
+        }
+        return true;
+    }
+
+    // Salin lewat file sementara lalu rename, sehingga file cache tidak pernah setengah jadi.
+    // Nama akhir memuat CRC32 isi model: <asset>.<appVersion>.<crc32>
+    private File copyToCache(File cacheDir, String assetName, String versionPrefix) throws IOException {
+        File tmp = new File(cacheDir, versionPrefix + "tmp");
+        CRC32 crc = new CRC32();
+        try (InputStream is = context.getAssets().open(assetName);
+             OutputStream os = new FileOutputStream(tmp)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                os.write(buffer, 0, read);
+            }
+            os.flush();
+        }
+
+        File target = new File(cacheDir, versionPrefix + String.format(Locale.US, "%08x", crc.getValue()));
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Failed to move model into cache: " + target);
+        }
+        Log.d(TAG, "Model copied to cache: " + target.getName() + " (" + target.length() + " bytes)");
+        return target;
+    }
+
+    // Versi sebelumnya menyalin model ke getFilesDir() tanpa versi
+    private void deleteLegacyCopy(String assetName) {
+        File legacy = new File(context.getFilesDir(), assetName);
+        if (legacy.exists() && legacy.delete()) {
+            Log.d(TAG, "Deleted legacy model copy: " + legacy.getAbsolutePath());
+        }
+    }
+
+    private static long resolveAppVersion(Context context) {
+        try {
+            return context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0)
+                    .lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Package info unavailable: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public static class MappedModel {
+        public final String name;
+        public final MappedByteBuffer buffer;
+        // Berubah setiap kali isi model bisa berubah (update aplikasi)
+        public final String version;
+        // File cache asal buffer; null jika di-mmap langsung dari APK
+        public final File file;
+
+        public MappedModel(String name, MappedByteBuffer buffer, String version, File file) {
+            this.name = name;
+            this.buffer = buffer;
+            this.version = version;
+            this.file = file;
+        }
+
+        public long sizeBytes() {
+            return buffer.capacity();
+        }
+    }
+}
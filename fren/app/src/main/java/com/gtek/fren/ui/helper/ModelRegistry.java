@@ -0,0 +1,181 @@
+package com.gtek.fren.ui.helper;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Menyimpan beberapa model (masing-masing sebagai InterpreterPool) tetap termuat
+// dalam batas memori tertentu. Model yang paling lama tidak dipakai dikeluarkan
+// lebih dulu, sehingga berpindah antar model yang masih termuat hampir instan.
+// Entri dibedakan per backend; pool backend lama ikut dikeluarkan lewat LRU setelah ganti backend.
+public class ModelRegistry {
+
+    private static final String TAG = "ModelRegistry";
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 128L * 1024 * 1024;
+    private static final long DRAIN_TIMEOUT_MS = 5000;
+
+    private final Context context;
+    private final int poolSize;
+    private final long memoryBudgetBytes;
+    // Access-order: entri pertama adalah yang paling lama tidak dipakai
+    private final LinkedHashMap<String, Entry> residentModels = new LinkedHashMap<>(4, 0.75f, true);
+    private long residentBytes = 0;
+    // volatile: dibaca dari UI thread (menu) tanpa menunggu lock yang dipegang selama memuat model
+    private volatile InferenceBackend backend;
+
+    public ModelRegistry(Context context, int poolSize, long memoryBudgetBytes) {
+        this.context = context.getApplicationContext();
+        this.poolSize = poolSize;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.backend = new TfLiteBackend(this.context, poolSize);
+    }
+
+    // Ganti backend untuk getOrLoad berikutnya; mengembalikan backend sebelumnya
+    synchronized InferenceBackend setBackend(InferenceBackend backend) {
+        InferenceBackend previous = this.backend;
+        this.backend = backend;
+        return previous;
+    }
+
+    public String getBackendName() {
+        return backend.getName();
+    }
+
+    // Kembalikan pool untuk model ini pada backend aktif, memuat dan memverifikasinya jika belum termuat
+    public synchronized InterpreterPool getOrLoad(String modelName) throws IOException {
+        Entry entry = residentModels.get(keyOf(backend, modelName));
+        if (entry != null) {
+            entry.hits++;
+            entry.lastUsedMs = SystemClock.elapsedRealtime();
+            Log.d(TAG, "Cache hit for " + modelName);
+            return entry.pool;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        // Model di-mmap dari APK (atau dari cache jika asset terkompresi), tanpa salinan ke heap;
+        // backend yang memuat dari path selalu mendapat file cache
+        String assetName = backend.resolveAssetName(modelName);
+        ModelLoader loader = new ModelLoader(context);
+        ModelLoader.MappedModel model = backend.requiresModelFile()
+                ? loader.loadAsFile(assetName)
+                : loader.load(assetName);
+
+        // Setiap sesi di pool sudah diverifikasi dengan dummy input
+        InterpreterPool pool = new InterpreterPool(backend, model, poolSize);
+
+        entry = new Entry(modelName, backend.getName(), pool, model.sizeBytes(), estimateBytes(model),
+                SystemClock.elapsedRealtime() - start);
+        residentModels.put(keyOf(backend, modelName), entry);
+        residentBytes += entry.estimatedBytes;
+        Log.d(TAG, String.format(Locale.US, "Loaded %s (%s) in %d ms (%.2f MB resident of %.2f MB budget)",
+                modelName, entry.backend, entry.loadTimeMs, residentBytes / (1024.0 * 1024.0),
+                memoryBudgetBytes / (1024.0 * 1024.0)));
+        return pool;
+    }
+
+    // Keluarkan model LRU sampai total di bawah budget; model aktif pada backend aktif tidak
+    // pernah dikeluarkan. Dipanggil setelah pool aktif ditukar agar pool lama bisa dikosongkan dengan aman.
+    public void trimToBudget(String... activeModels) {
+        List<String> pinned = Arrays.asList(activeModels);
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Entry>> iterator = residentModels.entrySet().iterator();
+            while (residentBytes > memoryBudgetBytes && iterator.hasNext()) {
+                Entry entry = iterator.next().getValue();
+                if (entry.backend.equals(backend.getName()) && pinned.contains(entry.name)) {
+                    continue;
+                }
+                iterator.remove();
+                residentBytes -= entry.estimatedBytes;
+                evicted.add(entry);
+            }
+        }
+
+        for (Entry entry : evicted) {
+            Log.d(TAG, "Evicting " + entry.name + " (" + entry.backend + ", " + entry.estimatedBytes + " bytes)");
+            try {
+                entry.pool.drainAndClose(DRAIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.pool.close();
+            }
+        }
+    }
+
+    public synchronized List<ModelStats> getStats() {
+        List<ModelStats> stats = new ArrayList<>(residentModels.size());
+        for (Entry entry : residentModels.values()) {
+            stats.add(new ModelStats(entry.name, entry.backend, entry.sizeBytes, entry.estimatedBytes,
+                    entry.loadTimeMs, entry.hits, entry.lastUsedMs));
+        }
+        return stats;
+    }
+
+    public synchronized void closeAll() {
+        for (Entry entry : residentModels.values()) {
+            entry.pool.close();
+        }
+        residentModels.clear();
+        residentBytes = 0;
+    }
+
+    // Perkiraan kasar: bobot yang di-mmap ditambah satu arena tensor (~ukuran model) per sesi
+    private long estimateBytes(ModelLoader.MappedModel model) {
+        return model.sizeBytes() * (1 + poolSize);
+    }
+
+    private static String keyOf(InferenceBackend backend, String modelName) {
+        return backend.getName() + "/" + modelName;
+    }
+
+    private static final class Entry {
+        final String name;
+        final String backend;
+        final InterpreterPool pool;
+        final long sizeBytes;
+        final long estimatedBytes;
+        final long loadTimeMs;
+        long hits = 0;
+        long lastUsedMs = SystemClock.elapsedRealtime();
+
+        Entry(String name, String backend, InterpreterPool pool,
+              long sizeBytes, long estimatedBytes, long loadTimeMs) {
+            this.name = name;
+            this.backend = backend;
+            this.pool = pool;
+            this.sizeBytes = sizeBytes;
+            this.estimatedBytes = estimatedBytes;
+            this.loadTimeMs = loadTimeMs;
+        }
+    }
+
+    public static class ModelStats {
+        public final String modelName;
+        public final String backend;
+        public final long sizeBytes;
+        public final long estimatedResidentBytes;
+        public final long loadTimeMs;
+        public final long hits;
+        public final long lastUsedMs;
+
+        public ModelStats(String modelName, String backend, long sizeBytes, long estimatedResidentBytes,
+                          long loadTimeMs, long hits, long lastUsedMs) {
+            this.modelName = modelName;
+            this.backend = backend;
+            this.sizeBytes = sizeBytes;
+            this.estimatedResidentBytes = estimatedResidentBytes;
+            this.loadTimeMs = loadTimeMs;
+            this.hits = hits;
+            this.lastUsedMs = lastUsedMs;
+        }
+    }
+}
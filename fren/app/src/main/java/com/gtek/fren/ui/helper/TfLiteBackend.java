@@ -0,0 +1,55 @@
+package com.gtek.fren.ui.helper;
+
+import android.content.Context;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Backend TFLite: model di-mmap dari APK, Options hasil auto-tuning per model
+final class TfLiteBackend implements InferenceBackend {
+
+    static final String NAME = "tflite";
+
+    private final InterpreterTuner tuner;
+    // Options di-tune sekali per versi model, lalu dipakai untuk semua sesi di pool
+    private final Map<String, Interpreter.Options> tunedOptions = new HashMap<>();
+
+    TfLiteBackend(Context context, int poolSize) {
+        this.tuner = new InterpreterTuner(context, poolSize);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String resolveAssetName(String modelName) {
+        return modelName;
+    }
+
+    @Override
+    public boolean requiresModelFile() {
+        return false;
+    }
+
+    @Override
+    public InferenceSession createSession(ModelLoader.MappedModel model) {
+        return new TfLiteSession(model.buffer, resolveOptions(model));
+    }
+
+    private synchronized Interpreter.Options resolveOptions(ModelLoader.MappedModel model) {
+        String key = model.name + "|" + model.version;
+        Interpreter.Options options = tunedOptions.get(key);
+        if (options == null) {
+            options = tuner.resolveOptions(model);
+            // Options default dari main thread tidak disimpan agar tuning tetap dilakukan nanti
+            if (!InterpreterTuner.isMainThread()) {
+                tunedOptions.put(key, options);
+            }
+        }
+        return options;
+    }
+}
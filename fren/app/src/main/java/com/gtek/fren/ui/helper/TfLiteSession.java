@@ -0,0 +1,93 @@
+package com.gtek.fren.ui.helper;
+
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// InferenceSession di atas satu TFLite Interpreter
+final class TfLiteSession extends InferenceSession {
+
+    private static final String TAG = "TfLiteSession";
+
+    private final Interpreter interpreter;
+    // Ukuran batch tensor yang sedang dialokasikan di interpreter; -1 jika tidak diketahui
+    private int interpreterBatchSize = 1;
+    // Batch lebih kecil dari ukuran teralokasi dipad ke buffer ini, sehingga jumlah wajah
+    // yang berganti-ganti (mis. 1 <-> 2) tidak memicu resizeInput + allocateTensors per frame
+    private ByteBuffer paddedInput;
+    private ByteBuffer paddedOutput;
+
+    // Buffer model (mmap) dipakai bersama oleh semua sesi dan tidak boleh diubah
+    TfLiteSession(ByteBuffer model, Interpreter.Options options) {
+        this(new Interpreter(model, options));
+    }
+
+    private TfLiteSession(Interpreter interpreter) {
+        super(specOf(interpreter.getInputTensor(0)), specOf(interpreter.getOutputTensor(0)));
+        this.interpreter = interpreter;
+    }
+
+    @Override
+    void invoke(TensorBuffers buffers) {
+        int batchSize = buffers.batchSize;
+        // Ukuran teralokasi dipakai selama padding paling banyak 2x (1 <-> 2 tetap gratis);
+        // di luar itu tensor diubah ke bucket pangkat dua, mis. kembali ke 1 setelah lonjakan 4 wajah
+        if (batchSize > interpreterBatchSize || interpreterBatchSize > 2 * batchSize) {
+            resizeTo(bucketFor(batchSize));
+        }
+
+        if (batchSize == interpreterBatchSize) {
+            interpreter.run(buffers.input, buffers.output);
+            return;
+        }
+        runPadded(buffers);
+    }
+
+    // Wajah diisi di awal buffer ber-padding; slot sisanya berisi data lama dan output-nya diabaikan
+    private void runPadded(TensorBuffers buffers) {
+        int outputBytes = buffers.output.capacity();
+        paddedInput.clear();
+        paddedInput.put(buffers.input.duplicate());
+        paddedInput.rewind();
+        paddedOutput.rewind();
+        interpreter.run(paddedInput, paddedOutput);
+
+        paddedOutput.position(0).limit(outputBytes);
+        ByteBuffer output = buffers.output.duplicate();
+        output.clear();
+        output.put(paddedOutput);
+        paddedOutput.clear();
+    }
+
+    private void resizeTo(int batchSize) {
+        // Tandai tidak diketahui dulu agar kegagalan resize dipulihkan pada panggilan berikut
+        interpreterBatchSize = -1;
+        interpreter.resizeInput(0, new int[]{batchSize, INPUT_SIZE, INPUT_SIZE, 1});
+        interpreter.allocateTensors();
+        interpreterBatchSize = batchSize;
+        paddedInput = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes())
+                .order(ByteOrder.nativeOrder());
+        paddedOutput = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes())
+                .order(ByteOrder.nativeOrder());
+        Log.d(TAG, "Input tensor resized to batch " + batchSize);
+    }
+
+    // Pangkat dua terkecil yang memuat batchSize: 1, 2, 4, 8, ...
+    private static int bucketFor(int batchSize) {
+        return batchSize <= 1 ? 1 : Integer.highestOneBit(batchSize - 1) << 1;
+    }
+
+    @Override
+    void closeEngine() {
+        interpreter.close();
+    }
+
+    private static TensorSpec specOf(Tensor tensor) {
+        Tensor.QuantizationParams params = tensor.quantizationParams();
+        return new TensorSpec(tensor.dataType(), params.getScale(), params.getZeroPoint());
+    }
+}
@@ -0,0 +1,46 @@
+package com.gtek.fren.ui.helper;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark kasar FaceTensorKernel di JVM: ROI wajah 200x180 dari frame luma 640x480 ke
+ * 48x48 float32. Tidak ikut unit test biasa; hapus @Ignore untuk menjalankannya secara manual.
+ */
+@Ignore("Benchmark manual, bukan unit test")
+public class FaceTensorKernelBenchmark {
+
+    private static final int SIZE = 48;
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int ITERATIONS = 2000;
+
+    @Test
+    public void cameraFrameCrop() {
+        byte[] pixels = new byte[WIDTH * HEIGHT];
+        new Random(11).nextBytes(pixels);
+        ByteBuffer plane = ByteBuffer.allocateDirect(pixels.length);
+        plane.put(pixels).rewind();
+        ByteBuffer target = ByteBuffer.allocateDirect(SIZE * SIZE * 4).order(ByteOrder.nativeOrder());
+        FaceTensorKernel kernel = new FaceTensorKernel(SIZE, SIZE);
+
+        // Pemanasan JIT
+        for (int i = 0; i < ITERATIONS / 4; i++) {
+            kernel.resizeInto(plane, WIDTH, 1, 100, 80, 200, 180, 90, target, 0,
+                    FaceTensorKernel.OUTPUT_FLOAT32, 1f / 255f, 0f);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            kernel.resizeInto(plane, WIDTH, 1, 100, 80, 200, 180, 90, target, 0,
+                    FaceTensorKernel.OUTPUT_FLOAT32, 1f / 255f, 0f);
+        }
+        double microsPerCrop = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+        System.out.println(String.format(Locale.US, "FaceTensorKernel 200x180 -> 48x48: %.1f us/crop",
+                microsPerCrop));
+    }
+}
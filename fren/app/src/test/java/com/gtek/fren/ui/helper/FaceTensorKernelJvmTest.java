@@ -0,0 +1,191 @@
+package com.gtek.fren.ui.helper;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test JVM untuk FaceTensorKernel tanpa OpenCV: nilai yang diharapkan dihitung manual
+ * (identitas, rata-rata blok, rotasi satu piksel). Perbandingan dengan OpenCV tetap di
+ * androidTest (FaceTensorKernelTest).
+ */
+public class FaceTensorKernelJvmTest {
+
+    private static final int SIZE = 48;
+
+    @Test
+    public void identityAt48x48() {
+        byte[] pixels = gradient(SIZE, SIZE);
+        ByteBuffer plane = toPlane(pixels, SIZE, SIZE, 1, SIZE);
+
+        FaceTensorKernel kernel = new FaceTensorKernel(SIZE, SIZE);
+        float[] values = kernel.resize(plane, SIZE, 1, 0, 0, SIZE, SIZE);
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            assertEquals("pixel " + i, pixels[i] & 0xFF, values[i], 1e-4f);
+        }
+
+        byte[] bytes = new byte[SIZE * SIZE];
+        kernel.resizeToBytes(plane, SIZE, 1, 0, 0, SIZE, SIZE, 0, bytes);
+        assertArrayEquals(pixels, bytes);
+    }
+
+    @Test
+    public void averagesBlocksForIntegerScale() {
+        // Blok 2x2 kiri atas {10, 20, 30, 40} -> 25
+        byte[] pixels = gradient(96, 96);
+        pixels[0] = 10;
+        pixels[1] = 20;
+        pixels[96] = 30;
+        pixels[97] = 40;
+        ByteBuffer plane = toPlane(pixels, 96, 96, 1, 96);
+
+        float[] values = new FaceTensorKernel(SIZE, SIZE).resize(plane, 96, 1, 0, 0, 96, 96);
+        assertEquals(25f, values[0], 1e-4f);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                float expected = ((pixels[(2 * y) * 96 + 2 * x] & 0xFF)
+                        + (pixels[(2 * y) * 96 + 2 * x + 1] & 0xFF)
+                        + (pixels[(2 * y + 1) * 96 + 2 * x] & 0xFF)
+                        + (pixels[(2 * y + 1) * 96 + 2 * x + 1] & 0xFF)) / 4f;
+                assertEquals("(" + x + ", " + y + ")", expected, values[y * SIZE + x], 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void averagesBlocksInsideRoi() {
+        // ROI 144x144 mulai (7, 5) pada frame 160x160: blok 3x3 konstan per sel tujuan
+        int frameSize = 160;
+        byte[] pixels = new byte[frameSize * frameSize];
+        for (int y = 0; y < SIZE * 3; y++) {
+            for (int x = 0; x < SIZE * 3; x++) {
+                pixels[(5 + y) * frameSize + 7 + x] = (byte) ((x / 3) * 4 + (y / 3));
+            }
+        }
+        ByteBuffer plane = toPlane(pixels, frameSize, frameSize, 1, frameSize);
+
+        float[] values = new FaceTensorKernel(SIZE, SIZE).resize(plane, frameSize, 1, 7, 5, 144, 144);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                assertEquals("(" + x + ", " + y + ")", x * 4 + y, values[y * SIZE + x], 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void honoursRowAndPixelStride() {
+        int width = 96;
+        int height = 96;
+        byte[] pixels = randomPixels(width * height, 3);
+        ByteBuffer packed = toPlane(pixels, width, height, 1, width);
+        // Plane kamera: piksel berselang (mis. plane UV) dan padding 40 byte per baris
+        ByteBuffer strided = toPlane(pixels, width, height, 2, width * 2 + 40);
+
+        byte[] expected = new byte[SIZE * SIZE];
+        byte[] actual = new byte[SIZE * SIZE];
+        new FaceTensorKernel(SIZE, SIZE).resizeToBytes(packed, width, 1, 0, 0, width, height, 0, expected);
+        new FaceTensorKernel(SIZE, SIZE).resizeToBytes(strided, width * 2 + 40, 2, 0, 0, width, height, 0, actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void rotatesClockwise() {
+        // Satu piksel terang di pojok kiri atas sensor
+        byte[] pixels = new byte[SIZE * SIZE];
+        pixels[0] = (byte) 200;
+        ByteBuffer plane = toPlane(pixels, SIZE, SIZE, 1, SIZE);
+        FaceTensorKernel kernel = new FaceTensorKernel(SIZE, SIZE);
+        int last = SIZE - 1;
+
+        // 90 searah jarum jam: kiri atas -> kanan atas
+        assertSinglePixel(kernel.resizeUpright(plane, SIZE, 1, 0, 0, SIZE, SIZE, 90), last, 0);
+        // 180: kiri atas -> kanan bawah
+        assertSinglePixel(kernel.resizeUpright(plane, SIZE, 1, 0, 0, SIZE, SIZE, 180), last, last);
+        // 270: kiri atas -> kiri bawah
+        assertSinglePixel(kernel.resizeUpright(plane, SIZE, 1, 0, 0, SIZE, SIZE, 270), 0, last);
+    }
+
+    @Test
+    public void rotatesAsymmetricPattern() {
+        // Sensor (x, y) -> tegak 90 derajat (last - y, x)
+        byte[] pixels = gradient(SIZE, SIZE);
+        ByteBuffer plane = toPlane(pixels, SIZE, SIZE, 1, SIZE);
+        float[] values = new FaceTensorKernel(SIZE, SIZE).resizeUpright(plane, SIZE, 1, 0, 0, SIZE, SIZE, 90);
+        int last = SIZE - 1;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                assertEquals(pixels[y * SIZE + x] & 0xFF, values[x * SIZE + (last - y)], 1e-4f);
+            }
+        }
+    }
+
+    @Test
+    public void writesNormalizedAndQuantizedValues() {
+        byte[] pixels = new byte[SIZE * SIZE];
+        pixels[0] = (byte) 255;
+        pixels[1] = (byte) 51;
+        ByteBuffer plane = toPlane(pixels, SIZE, SIZE, 1, SIZE);
+        FaceTensorKernel kernel = new FaceTensorKernel(SIZE, SIZE);
+
+        // Float32 mulai dari offset 8 byte: v / 255
+        ByteBuffer floats = ByteBuffer.allocateDirect(8 + SIZE * SIZE * 4).order(ByteOrder.nativeOrder());
+        kernel.resizeInto(plane, SIZE, 1, 0, 0, SIZE, SIZE, 0, floats, 8,
+                FaceTensorKernel.OUTPUT_FLOAT32, 1f / 255f, 0f);
+        assertEquals(1f, floats.getFloat(8), 1e-6f);
+        assertEquals(0.2f, floats.getFloat(12), 1e-6f);
+        assertEquals(0f, floats.getFloat(16), 1e-6f);
+
+        // INT8, scale kuantisasi 1/255 (valueScale 1) dan zeroPoint -128: 255 -> 127, 51 -> -77, 0 -> -128
+        ByteBuffer int8 = ByteBuffer.allocateDirect(SIZE * SIZE);
+        kernel.resizeInto(plane, SIZE, 1, 0, 0, SIZE, SIZE, 0, int8, 0,
+                FaceTensorKernel.OUTPUT_INT8, 1f, -128f);
+        assertEquals(127, int8.get(0));
+        assertEquals(-77, int8.get(1));
+        assertEquals(-128, int8.get(2));
+    }
+
+    private static void assertSinglePixel(float[] values, int expectedX, int expectedY) {
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                float expected = (x == expectedX && y == expectedY) ? 200f : 0f;
+                assertEquals("(" + x + ", " + y + ")", expected, values[y * SIZE + x], 1e-4f);
+            }
+        }
+    }
+
+    // Nilai berbeda untuk setiap (x, y) agar kesalahan indeks terlihat
+    private static byte[] gradient(int width, int height) {
+        byte[] pixels = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = (byte) ((x * 3 + y * 7) & 0xFF);
+            }
+        }
+        return pixels;
+    }
+
+    private static byte[] randomPixels(int count, long seed) {
+        byte[] pixels = new byte[count];
+        new Random(seed).nextBytes(pixels);
+        return pixels;
+    }
+
+    // Tata letak plane kamera; byte pengisi diberi 0xFF agar ikut terbaca jika stride salah
+    private static ByteBuffer toPlane(byte[] pixels, int width, int height, int pixelStride, int rowStride) {
+        ByteBuffer plane = ByteBuffer.allocateDirect(rowStride * height);
+        for (int i = 0; i < plane.capacity(); i++) {
+            plane.put(i, (byte) 0xFF);
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                plane.put(y * rowStride + x * pixelStride, pixels[y * width + x]);
+            }
+        }
+        return plane;
+    }
+}